@@ -0,0 +1,32 @@
+package com.leonardus.socialmedia.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionControlConfig {
+
+    @Bean
+    WebMvcConfigurer admissionControl(MeterRegistry meterRegistry,
+                                      @Value("${app.admission.client.rate:20}") double clientRate,
+                                      @Value("${app.admission.client.burst:40}") int clientBurst,
+                                      @Value("${app.admission.user.rate:10}") double userRate,
+                                      @Value("${app.admission.user.burst:20}") int userBurst,
+                                      @Value("${app.admission.max-concurrent-writes:8}") int maxConcurrentWrites,
+                                      @Value("${app.admission.max-keys:100000}") long maxKeys){
+        AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(
+                new TokenBuckets<>(clientRate, clientBurst, maxKeys), new TokenBuckets<>(userRate, userBurst, maxKeys),
+                maxConcurrentWrites, meterRegistry);
+
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry){
+                registry.addInterceptor(interceptor).addPathPatterns("/social-media/users", "/social-media/users/**");
+            }
+        };
+    }
+}
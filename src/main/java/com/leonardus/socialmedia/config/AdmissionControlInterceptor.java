@@ -0,0 +1,112 @@
+package com.leonardus.socialmedia.config;
+
+import com.leonardus.socialmedia.service.exceptions.ServiceUnavailableException;
+import com.leonardus.socialmedia.service.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Admission control for writes: a token bucket per client address and one per {userId} in the path answer 429
+ * when drained, then a bulkhead caps the writes in flight and answers 503 rather than letting them queue for a
+ * database connection. Reads pass straight through.
+ */
+class AdmissionControlInterceptor implements HandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final TokenBuckets<String> clients;
+    private final TokenBuckets<Long> users;
+    private final Semaphore inFlight;
+    private final Counter allowed;
+    private final Counter clientRateLimited;
+    private final Counter userRateLimited;
+    private final Counter shed;
+
+    AdmissionControlInterceptor(TokenBuckets<String> clients, TokenBuckets<Long> users, int maxConcurrentWrites,
+                                MeterRegistry meterRegistry){
+        this.clients = clients;
+        this.users = users;
+        this.inFlight = new Semaphore(maxConcurrentWrites);
+
+        this.allowed = decisions(meterRegistry, "allowed");
+        this.clientRateLimited = decisions(meterRegistry, "client_rate_limited");
+        this.userRateLimited = decisions(meterRegistry, "user_rate_limited");
+        this.shed = decisions(meterRegistry, "shed");
+        Gauge.builder("admission.in.flight", inFlight, permits -> maxConcurrentWrites - permits.availablePermits())
+                .description("Writes holding a bulkhead permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+        if (SAFE_METHODS.contains(request.getMethod())){
+            return true;
+        }
+
+        long wait = clients.tryAcquire(request.getRemoteAddr());
+        if (wait > 0){
+            clientRateLimited.increment();
+            throw new TooManyRequestsException("Too many requests from this client", retryAfterSeconds(wait));
+        }
+
+        Long userId = userId(request);
+        if (userId != null){
+            wait = users.tryAcquire(userId);
+            if (wait > 0){
+                userRateLimited.increment();
+                throw new TooManyRequestsException("Too many requests for this user", retryAfterSeconds(wait));
+            }
+        }
+
+        if (!inFlight.tryAcquire()){
+            shed.increment();
+            throw new ServiceUnavailableException("Too many requests in progress", 1);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        allowed.increment();
+
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex){
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null){
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            inFlight.release();
+        }
+    }
+
+    // null when the path has no {userId} or it is not a number, such a request fails binding without touching a user
+    private static Long userId(HttpServletRequest request){
+        if (request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE) instanceof Map<?, ?> variables
+                && variables.get("userId") instanceof String userId){
+            try {
+                return Long.valueOf(userId);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static long retryAfterSeconds(long waitNanos){
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, String decision){
+        return Counter.builder("admission.decisions")
+                .description("Write requests admitted or rejected by the rate limiters and the bulkhead")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.leonardus.socialmedia.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+@Configuration
+// outside @Transactional: a hit opens no transaction and an async load starts its own on the loading thread
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+
+    /*
+     * A synchronous Caffeine load runs inside ConcurrentHashMap.compute, so the query behind @Cacheable(sync = true)
+     * would pin the virtual thread to its carrier. In async mode the map only holds a future, the load runs on
+     * its own virtual thread and the callers park while they wait for it.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    CacheManagerCustomizer<CaffeineCacheManager> virtualThreadCacheLoads(CacheProperties cacheProperties){
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("cache-load-");
+        executor.setVirtualThreads(true);
+        String spec = cacheProperties.getCaffeine().getSpec();
+
+        return cacheManager -> {
+            cacheManager.setCaffeine((spec == null ? Caffeine.newBuilder() : Caffeine.from(spec)).executor(executor));
+            cacheManager.setAsyncCacheMode(true);
+        };
+    }
+}
@@ -1,13 +0,0 @@
-package com.leonardus.socialmedia.config;
-
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class ModelMapperConfig {
-    @Bean
-    ModelMapper mapper(){
-        return new ModelMapper();
-    }
-}
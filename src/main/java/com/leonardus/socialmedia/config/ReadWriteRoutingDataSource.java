@@ -0,0 +1,38 @@
+package com.leonardus.socialmedia.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * Read-only transactions go to the replica, everything else, statements outside a transaction included, to the
+ * primary. The pool is picked when the connection is first used, so this only works behind a
+ * LazyConnectionDataSourceProxy, see DataSourceRoutingConfig.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    enum Route { PRIMARY, REPLICA }
+
+    // keeps the current read-only transaction on the primary, has to be called before its first statement
+    public static void usePrimary(){
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || PINNED.get() != null){
+            return;
+        }
+
+        PINNED.set(Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status){
+                PINNED.remove();
+            }
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey(){
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && PINNED.get() == null
+                ? Route.REPLICA
+                : Route.PRIMARY;
+    }
+}
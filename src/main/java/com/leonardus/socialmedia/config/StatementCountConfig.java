@@ -0,0 +1,78 @@
+package com.leonardus.socialmedia.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class StatementCountConfig {
+    private static final String START_ATTRIBUTE = StatementCountConfig.class.getName() + ".start";
+
+    @Bean
+    StatementCounter statementCounter(){
+        return new StatementCounter();
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer statementCounting(StatementCounter statementCounter){
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementCounter);
+    }
+
+    /*
+     * Statements issued by each request, published as http.server.requests.statements by uri, method and kind.
+     * Only the request thread is counted, so what a StreamingResponseBody reads on the async thread is left out.
+     */
+    @Bean
+    WebMvcConfigurer statementCountMetrics(StatementCounter statementCounter, MeterRegistry meterRegistry){
+        HandlerInterceptor interceptor = new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+                request.setAttribute(START_ATTRIBUTE, statementCounter.snapshot());
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex){
+                if (!(request.getAttribute(START_ATTRIBUTE) instanceof StatementCounter.Counts start)){
+                    return;
+                }
+
+                StatementCounter.Counts used = statementCounter.snapshot().minus(start);
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+                record(request, uri, "select", used.selects());
+                record(request, uri, "insert", used.inserts());
+                record(request, uri, "update", used.updates());
+                record(request, uri, "delete", used.deletes());
+            }
+
+            private void record(HttpServletRequest request, String uri, String kind, long count){
+                DistributionSummary.builder("http.server.requests.statements")
+                        .description("SQL statements issued while handling a request")
+                        .baseUnit("statements")
+                        .tag("uri", uri)
+                        .tag("method", request.getMethod())
+                        .tag("kind", kind)
+                        .register(meterRegistry)
+                        .record(count);
+            }
+        };
+
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry){
+                registry.addInterceptor(interceptor);
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.leonardus.socialmedia.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+
+/*
+ * Counts the SQL statements Hibernate prepares on each thread, by kind. The counts only grow: callers take a snapshot
+ * before and after the work they want to measure and subtract them. Statements issued outside Hibernate, through
+ * JdbcTemplate for example, are not seen.
+ */
+public class StatementCounter implements StatementInspector {
+    private static final int SELECT = 0;
+    private static final int INSERT = 1;
+    private static final int UPDATE = 2;
+    private static final int DELETE = 3;
+    private static final int OTHER = 4;
+
+    private final ThreadLocal<long[]> counts = ThreadLocal.withInitial(() -> new long[5]);
+
+    public record Counts(long selects, long inserts, long updates, long deletes) {
+        public Counts minus(Counts other){
+            return new Counts(selects - other.selects, inserts - other.inserts,
+                    updates - other.updates, deletes - other.deletes);
+        }
+
+        public long total(){
+            return selects + inserts + updates + deletes;
+        }
+    }
+
+    @Override
+    public String inspect(String sql){
+        counts.get()[kind(sql)]++;
+        return sql;
+    }
+
+    public Counts snapshot(){
+        long[] current = counts.get();
+        return new Counts(current[SELECT], current[INSERT], current[UPDATE], current[DELETE]);
+    }
+
+    private static int kind(String sql){
+        int start = 0;
+        while (start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')){
+            start++;
+        }
+        String verb = sql.substring(start, Math.min(sql.length(), start + 6)).toLowerCase(Locale.ROOT);
+
+        return switch (verb) {
+            case "select" -> SELECT;
+            case "insert" -> INSERT;
+            case "update" -> UPDATE;
+            case "delete" -> DELETE;
+            default -> verb.startsWith("with") ? SELECT : OTHER;
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.leonardus.socialmedia.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * One token bucket per key, each stored as the GCRA theoretical arrival time: the instant the bucket would be full
+ * again. Taking a token is a CAS on that single long, so callers never block and only callers with the same key
+ * ever retry. A bucket that is already full is the same as no bucket, so a bucket left alone for as long as it
+ * takes to refill expires; past maxKeys live buckets the least used are evicted, which at worst lets a key start
+ * over with a full bucket.
+ */
+public class TokenBuckets<K> {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Cache<K, AtomicLong> buckets;
+
+    public TokenBuckets(double tokensPerSecond, int burst, long maxKeys){
+        this.intervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.toleranceNanos = (burst - 1) * intervalNanos;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(toleranceNanos + intervalNanos))
+                .build();
+    }
+
+    // 0 when a token was taken, otherwise how many nanoseconds until the next one
+    public long tryAcquire(K key){
+        return this.tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(K key, long now){
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(now));
+
+        while (true){
+            long arrival = bucket.get();
+            long start = arrival - now > 0 ? arrival : now;
+            long wait = start - now - toleranceNanos;
+            if (wait > 0){
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, start + intervalNanos)){
+                return 0;
+            }
+        }
+    }
+
+    long size(){
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
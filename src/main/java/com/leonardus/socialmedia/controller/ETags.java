@@ -0,0 +1,62 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Function;
+
+/*
+ * ETags that let a matching If-None-Match be answered with 304 before the body is serialized. A single user gets a
+ * strong tag holding its version, which is also what If-Match sends back on an update. A page gets a weak tag built
+ * from the updatedAt timestamps its DTOs carry, which rows it holds and its cursor, so a new or removed row changes
+ * it even when no timestamp did.
+ */
+final class ETags {
+
+    private ETags(){
+    }
+
+    static String of(Long version){
+        return "\"" + version + "\"";
+    }
+
+    // the version an If-Match header expects, null when there is no header or it matches any version
+    static Long version(String ifMatch){
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")){
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        try {
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")){
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below like any other tag this resource never handed out
+        }
+        throw new PreconditionFailedException("If-Match must hold the ETag returned for the user");
+    }
+
+    static <T> String of(CursorPageDTO<T> page, Function<T, Long> id, Function<T, LocalDateTime> updatedAt){
+        long hash = 17;
+        for (T row : page.getContent()){
+            hash = mix(mix(hash, id.apply(row)), nanos(updatedAt.apply(row)));
+        }
+        return weak(mix(hash, page.getNextCursor() == null ? -1 : page.getNextCursor()));
+    }
+
+    private static long nanos(LocalDateTime time){
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static long mix(long hash, long value){
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private static String weak(long hash){
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+}
@@ -0,0 +1,38 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/social-media/export")
+@AllArgsConstructor
+@Tag(name = "Export", description = "Full dumps of the data as NDJSON, one object per line")
+public class ExportController {
+    ExportService exportService;
+
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all users")
+    public ResponseEntity<StreamingResponseBody> exportUsers(){
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(exportService::exportUsers);
+    }
+
+    @GetMapping(value = "/posts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all posts")
+    public ResponseEntity<StreamingResponseBody> exportPosts(){
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(exportService::exportPosts);
+    }
+
+    @GetMapping(value = "/comments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all comments")
+    public ResponseEntity<StreamingResponseBody> exportComments(){
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(exportService::exportComments);
+    }
+}
@@ -0,0 +1,31 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.service.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/social-media/import")
+@AllArgsConstructor
+@Tag(name = "Import", description = "Bulk imports from NDJSON, one object per line")
+public class ImportController {
+    ImportService importService;
+
+    @PostMapping(value = "/users", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users",
+            description = "Each line of the body is a user to create. Each line of the response reports the id "
+                    + "created for that line or why it was rejected.")
+    public ResponseEntity<StreamingResponseBody> importUsers(InputStream body){
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> importService.importUsers(body, out));
+    }
+}
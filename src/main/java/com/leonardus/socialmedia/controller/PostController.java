@@ -0,0 +1,48 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.service.PostService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/social-media/posts")
+@AllArgsConstructor
+@Tag(name = "Post", description = "All endpoints related to posts across users")
+public class PostController {
+    PostService postService;
+
+    @GetMapping("/latest")
+    @Operation(summary = "Get the latest posts of all users",
+            parameters = {@Parameter(name = "after", description = "Id of the last post of the previous page"),
+                    @Parameter(name = "afterCreatedAt", description = "nextCursorCreatedAt of the previous page, keeps " +
+                            "the position when that post was deleted since"),
+                    @Parameter(name = "limit", example = "20")})
+    public ResponseEntity<CursorPageDTO<TimelinePostDTO>> findLatest(@RequestParam(required = false) Long after,
+                                                                     @RequestParam(required = false)
+                                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+                                                                     @RequestParam(defaultValue = "20") Integer limit){
+        return ResponseEntity.ok().body(postService.findLatest(after, afterCreatedAt, limit));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search posts by title and content, best matches first",
+            parameters = {@Parameter(name = "q", example = "spring"),
+                    @Parameter(name = "limit", example = "20")})
+    public ResponseEntity<List<TimelinePostDTO>> search(@RequestParam String q,
+                                                        @RequestParam(defaultValue = "20") Integer limit){
+        return ResponseEntity.ok().body(postService.search(q, limit));
+    }
+}
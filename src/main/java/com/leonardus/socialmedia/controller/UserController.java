@@ -11,26 +11,37 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
+@Validated
 @RequestMapping("/social-media/users")
 @AllArgsConstructor
 @Tag(name = "User", description = "All endpoints related to the user")
 public class UserController {
+    private static final String BULK_LIMIT = "A bulk request must have at most {max} items";
+
     UserService userService;
 
     @GetMapping
-    @Operation(summary = "Get all users")
-    public ResponseEntity<List<UserDTO>> findAll(){
-        return ResponseEntity.ok().body(userService.findAll());
+    @Operation(summary = "Get all users",
+            parameters = {@Parameter(name = "after", description = "Id of the last user of the previous page"),
+                    @Parameter(name = "limit", example = "20")})
+    public ResponseEntity<CursorPageDTO<UserDTO>> findAll(@RequestParam(required = false) Long after,
+                                                          @RequestParam(defaultValue = "20") Integer limit){
+        return ResponseEntity.ok().body(userService.findAll(after, limit));
     }
 
     @GetMapping("/{userId}")
@@ -40,13 +51,17 @@ public class UserController {
                 @ApiResponse(responseCode = "200", description = "OK",
                         content = @Content(schema = @Schema(implementation = UserDTO.class),
                                 mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                 @ApiResponse(responseCode = "404", description = "Not found",
                         content = @Content(schema = @Schema(implementation = StandardError.class),
                                 examples = @ExampleObject(),
                                 mediaType = MediaType.APPLICATION_JSON_VALUE))
             })
     public ResponseEntity<UserDTO> findById(@PathVariable Long userId){
-        return ResponseEntity.ok().body(userService.findById(userId));
+        UserDTO user = userService.findById(userId);
+
+        // a matching If-None-Match turns this into a 304 without a body
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user);
     }
 
     @PostMapping
@@ -78,11 +93,20 @@ public class UserController {
                             content = @Content(schema = @Schema(implementation = StandardError.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE)),
                     @ApiResponse(responseCode = "404", description = "Not found",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "409", description = "Changed by a concurrent request",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "412", description = "If-Match does not match the current version",
                             content = @Content(schema = @Schema(implementation = StandardError.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE))
             })
-    public ResponseEntity<UserDTO> update(@PathVariable Long userId, @RequestBody @Valid UserInsertDTO userInsertDTO){
-        return ResponseEntity.ok().body(userService.update(userId, userInsertDTO));
+    public ResponseEntity<UserDTO> update(@PathVariable Long userId, @RequestBody @Valid UserInsertDTO userInsertDTO,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        UserDTO user = userService.update(userId, userInsertDTO, ETags.version(ifMatch));
+
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user);
     }
 
     @DeleteMapping("/{userId}")
@@ -102,17 +126,27 @@ public class UserController {
 
     @GetMapping("/{userId}/posts")
     @Operation(summary = "Get all user posts",
-            parameters = @Parameter(name = "userId", example = "1"),
+            parameters = {@Parameter(name = "userId", example = "1"),
+                    @Parameter(name = "after", description = "Id of the last post of the previous page"),
+                    @Parameter(name = "afterCreatedAt", description = "nextCursorCreatedAt of the previous page"),
+                    @Parameter(name = "limit", example = "20")},
             responses = {
                     @ApiResponse(responseCode = "200", description = "OK",
-                            content = @Content(schema = @Schema(implementation = PostDTO.class),
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found",
                             content = @Content(schema = @Schema(implementation = StandardError.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE))
             })
-    public ResponseEntity<List<PostDTO>> getPosts(@PathVariable Long userId){
-        return ResponseEntity.ok().body(userService.getPosts(userId));
+    public ResponseEntity<CursorPageDTO<PostDTO>> getPosts(@PathVariable Long userId,
+                                                    @RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false)
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+                                                    @RequestParam(defaultValue = "20") Integer limit){
+        CursorPageDTO<PostDTO> posts = userService.getPosts(userId, after, afterCreatedAt, limit);
+
+        return ResponseEntity.ok().eTag(ETags.of(posts, PostDTO::getId, PostDTO::getUpdatedAt)).body(posts);
     }
 
 
@@ -134,19 +168,51 @@ public class UserController {
         return ResponseEntity.ok().body(userService.createPost(userId, postInsertDTO));
     }
 
+    @PostMapping("/{userId}/posts/bulk")
+    @Operation(summary = "Create posts in bulk",
+            description = "Invalid items are reported in errors by their index in the request and do not stop the others from being created",
+            parameters = @Parameter(name = "userId", example = "1"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(schema = @Schema(implementation = BulkInsertResultDTO.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "400", description = "Bad request",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "404", description = "Not found",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE))
+            })
+    public ResponseEntity<BulkInsertResultDTO<PostDTO>> createPosts(@PathVariable Long userId,
+                                                                     @RequestBody @Size(max = BulkInsertResultDTO.MAX_ITEMS, message = BULK_LIMIT)
+                                                                     List<PostInsertDTO> postInsertDTOS){
+        return ResponseEntity.ok().body(userService.createPosts(userId, postInsertDTOS));
+    }
+
     @GetMapping("/{userId}/comments")
     @Operation(summary = "Get all user comments",
-            parameters = @Parameter(name = "userId", example = "1"),
+            parameters = {@Parameter(name = "userId", example = "1"),
+                    @Parameter(name = "after", description = "Id of the last comment of the previous page"),
+                    @Parameter(name = "afterCreatedAt", description = "nextCursorCreatedAt of the previous page, keeps " +
+                            "the position when that comment was deleted since"),
+                    @Parameter(name = "limit", example = "20")},
             responses = {
                     @ApiResponse(responseCode = "200", description = "OK",
-                            content = @Content(schema = @Schema(implementation = CommentDTO.class),
+                            content = @Content(schema = @Schema(implementation = CursorPageDTO.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found",
                             content = @Content(schema = @Schema(implementation = StandardError.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE))
             })
-    public ResponseEntity<List<CommentDTO>> getComments(@PathVariable Long userId){
-        return ResponseEntity.ok().body(userService.getComments(userId));
+    public ResponseEntity<CursorPageDTO<CommentDTO>> getComments(@PathVariable Long userId,
+                                                    @RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false)
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+                                                    @RequestParam(defaultValue = "20") Integer limit){
+        CursorPageDTO<CommentDTO> comments = userService.getComments(userId, after, afterCreatedAt, limit);
+
+        return ResponseEntity.ok().eTag(ETags.of(comments, CommentDTO::getId, CommentDTO::getUpdatedAt)).body(comments);
     }
 
     @PostMapping("/{userId}/{postId}/comment")
@@ -156,6 +222,9 @@ public class UserController {
                     @ApiResponse(responseCode = "200", description = "OK",
                             content = @Content(schema = @Schema(implementation = CommentDTO.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "202", description = "Accepted, written shortly after (write-behind mode)",
+                            content = @Content(schema = @Schema(implementation = CommentDTO.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
                     @ApiResponse(responseCode = "400", description = "Bad request",
                             content = @Content(schema = @Schema(implementation = StandardError.class),
                                     mediaType = MediaType.APPLICATION_JSON_VALUE)),
@@ -165,6 +234,31 @@ public class UserController {
             })
     public ResponseEntity<CommentDTO> createComment(@PathVariable Long userId, @PathVariable Long postId,
                                                     @RequestBody @Valid CommentInsertDTO commentInsertDTO){
+        if (userService.isCommentWriteBehind()){
+            return ResponseEntity.accepted().body(userService.acceptComment(userId, postId, commentInsertDTO));
+        }
+
         return ResponseEntity.ok().body(userService.createComment(userId, postId, commentInsertDTO));
     }
+
+    @PostMapping("/{userId}/{postId}/comment/bulk")
+    @Operation(summary = "Create comments in bulk",
+            description = "Invalid items are reported in errors by their index in the request and do not stop the others from being created",
+            parameters = {@Parameter(name = "userId", example = "1"), @Parameter(name = "postId", example = "1")},
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(schema = @Schema(implementation = BulkInsertResultDTO.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "400", description = "Bad request",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "404", description = "Not found",
+                            content = @Content(schema = @Schema(implementation = StandardError.class),
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE))
+            })
+    public ResponseEntity<BulkInsertResultDTO<CommentDTO>> createComments(@PathVariable Long userId, @PathVariable Long postId,
+                                                                           @RequestBody @Size(max = BulkInsertResultDTO.MAX_ITEMS, message = BULK_LIMIT)
+                                                                           List<CommentInsertDTO> commentInsertDTOS){
+        return ResponseEntity.ok().body(userService.createComments(userId, postId, commentInsertDTOS));
+    }
 }
\ No newline at end of file
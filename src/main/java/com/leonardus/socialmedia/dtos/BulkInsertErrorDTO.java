@@ -0,0 +1,15 @@
+package com.leonardus.socialmedia.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkInsertErrorDTO {
+    private Integer index;
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.leonardus.socialmedia.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkInsertResultDTO<T> {
+    // items a bulk request may carry, all of them are written in one transaction
+    public static final int MAX_ITEMS = 1000;
+
+    private List<T> created;
+    private List<BulkInsertErrorDTO> errors;
+}
@@ -0,0 +1,21 @@
+package com.leonardus.socialmedia.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CommentExportDTO {
+    private Long id;
+    private String content;
+    private Long userId;
+    private Long postId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
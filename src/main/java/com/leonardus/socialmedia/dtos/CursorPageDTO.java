@@ -0,0 +1,52 @@
+package com.leonardus.socialmedia.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPageDTO<T> {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private List<T> content;
+    private Long nextCursor;
+    // createdAt of the row nextCursor points to, on lists ordered by it. Sent back along with the id it keeps the
+    // position even after that row was deleted
+    private LocalDateTime nextCursorCreatedAt;
+
+    public CursorPageDTO(List<T> content, Long nextCursor){
+        this(content, nextCursor, null);
+    }
+
+    public static int pageSize(int limit){
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // rows must be fetched with limit + 1 so the extra row tells whether another page exists
+    public static <T> CursorPageDTO<T> of(List<T> rows, int limit, Function<T, Long> cursor){
+        if (rows.size() <= limit){
+            return new CursorPageDTO<>(rows, null);
+        }
+
+        List<T> content = rows.subList(0, limit);
+        return new CursorPageDTO<>(content, cursor.apply(content.get(limit - 1)));
+    }
+
+    public static <T> CursorPageDTO<T> of(List<T> rows, int limit, Function<T, Long> cursor,
+                                          Function<T, LocalDateTime> createdAt){
+        CursorPageDTO<T> page = of(rows, limit, cursor);
+        if (page.getNextCursor() != null){
+            page.setNextCursorCreatedAt(createdAt.apply(page.getContent().get(limit - 1)));
+        }
+
+        return page;
+    }
+}
@@ -0,0 +1,22 @@
+package com.leonardus.socialmedia.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TimelinePostDTO {
+    private Long id;
+    private String title;
+    private String content;
+    private Long authorId;
+    private String authorName;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -17,4 +17,5 @@ public class UserDTO {
     private String email;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 }
@@ -18,8 +18,10 @@ public class UserInsertDTO {
     private Long id;
     @NotBlank(message = "The name field must not be blank")
     @Length(min = 3, message = "Tha name field must have at least {min} characters")
+    @Length(max = 255, message = "The name field must have at most {max} characters")
     private String name;
     @Email(message = "Email not allowed")
     @NotBlank(message = "The email field must not be blank")
+    @Length(max = 255, message = "The email field must have at most {max} characters")
     private String email;
 }
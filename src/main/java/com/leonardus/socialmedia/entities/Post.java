@@ -1,11 +1,12 @@
 package com.leonardus.socialmedia.entities;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -16,9 +17,16 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Entity(name = "posts")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
+@SQLRestriction("deleted_at is null")
+@Table(indexes = {@Index(name = "idx_posts_user_created_at", columnList = "user_id, createdAt, id"),
+        @Index(name = "idx_posts_created_at", columnList = "createdAt, id"),
+        @Index(name = "idx_posts_deleted_at", columnList = "deletedAt")})
 public class Post {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -27,8 +35,14 @@ public class Post {
     @Column(nullable = false)
     private String content;
 
-    @OneToMany
-    @JoinColumn(referencedColumnName = "id", name = "post_id")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private User user;
+
+    @OneToMany(mappedBy = "post", cascade = CascadeType.REMOVE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts.comments")
     private List<Comment> comments;
 
     @CreationTimestamp
@@ -36,4 +50,12 @@ public class Post {
 
     @UpdateTimestamp
     private LocalDateTime updatedAt;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // set along with its author's, see User.deletedAt
+    private LocalDateTime deletedAt;
 }
@@ -0,0 +1,20 @@
+package com.leonardus.socialmedia.mappers;
+
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.dtos.CommentInsertDTO;
+import com.leonardus.socialmedia.entities.Comment;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CommentMapper {
+
+    public CommentDTO toDTO(Comment comment){
+        return new CommentDTO(comment.getId(), comment.getContent(), comment.getCreatedAt(), comment.getUpdatedAt());
+    }
+
+    public Comment toEntity(CommentInsertDTO commentInsertDTO){
+        return Comment.builder()
+                .content(commentInsertDTO.getContent())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.leonardus.socialmedia.mappers;
+
+import com.leonardus.socialmedia.dtos.PostDTO;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PostMapper {
+
+    public PostDTO toDTO(Post post){
+        return new PostDTO(post.getId(), post.getTitle(), post.getContent(), post.getCreatedAt(), post.getUpdatedAt());
+    }
+
+    public TimelinePostDTO toTimelineDTO(Post post, User author){
+        return new TimelinePostDTO(post.getId(), post.getTitle(), post.getContent(), author.getId(), author.getName(),
+                post.getCreatedAt(), post.getUpdatedAt());
+    }
+
+    public Post toEntity(PostInsertDTO postInsertDTO){
+        return Post.builder()
+                .title(postInsertDTO.getTitle())
+                .content(postInsertDTO.getContent())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.leonardus.socialmedia.mappers;
+
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.User;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserMapper {
+
+    public UserDTO toDTO(User user){
+        return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getCreatedAt(), user.getUpdatedAt(),
+                user.getVersion());
+    }
+
+    public User toEntity(UserInsertDTO userInsertDTO){
+        return User.builder()
+                .name(userInsertDTO.getName())
+                .email(userInsertDTO.getEmail())
+                .build();
+    }
+}
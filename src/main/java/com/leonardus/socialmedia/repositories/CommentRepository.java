@@ -1,7 +1,73 @@
 package com.leonardus.socialmedia.repositories;
 
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.dtos.CommentExportDTO;
 import com.leonardus.socialmedia.entities.Comment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.CommentDTO(c.id, c.content, c.createdAt, c.updatedAt)
+            from comments c
+            where c.user.id = :userId
+            order by c.createdAt desc, c.id desc""")
+    List<CommentDTO> findDTOsByUserId(Long userId, Pageable pageable);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.CommentDTO(c.id, c.content, c.createdAt, c.updatedAt)
+            from comments c
+            where c.user.id = :userId
+              and (c.createdAt < :afterCreatedAt or (c.createdAt = :afterCreatedAt and c.id < :after))
+            order by c.createdAt desc, c.id desc""")
+    List<CommentDTO> findDTOsByUserIdAfter(Long userId, LocalDateTime afterCreatedAt, Long after, Pageable pageable);
+
+    // native so a cursor on a comment soft deleted since, like one on a deleted user's post, is still found
+    @Query(nativeQuery = true, value = "select created_at from comments where id = :id")
+    Optional<LocalDateTime> findCreatedAtById(Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.CommentExportDTO(c.id, c.content, c.user.id, c.post.id, c.createdAt, c.updatedAt)
+            from comments c
+            order by c.id""")
+    Stream<CommentExportDTO> streamAllExportDTOs();
+
+    // the user's own comments and everyone's comments on the user's posts
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update comments c set c.deletedAt = :now
+            where c.user.id = :userId
+               or c.post.id in (select p.id from posts p where p.user.id = :userId)""")
+    int softDeleteAllByUserIdOrPostUserId(Long userId, LocalDateTime now);
+
+    // live comments on a deleted post or by a deleted user, written while the deletion was committing
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(nativeQuery = true, value = """
+            update comments set deleted_at = localtimestamp
+            where deleted_at is null
+              and (user_id in (select id from users where deleted_at is not null)
+                or post_id in (select id from posts where deleted_at is not null))""")
+    int softDeleteOrphans();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(nativeQuery = true, value = """
+            delete from comments
+            where id in (select id from comments where deleted_at is not null order by id fetch first :batchSize rows only)""")
+    int purgeDeleted(int batchSize);
+
+    @Query(nativeQuery = true, value = "select count(*) from comments where deleted_at is not null")
+    long countDeleted();
 }
@@ -1,7 +1,100 @@
 package com.leonardus.socialmedia.repositories;
 
+import com.leonardus.socialmedia.dtos.PostDTO;
+import com.leonardus.socialmedia.dtos.PostExportDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
 import com.leonardus.socialmedia.entities.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.PostDTO(p.id, p.title, p.content, p.createdAt, p.updatedAt)
+            from posts p
+            where p.user.id = :userId
+            order by p.createdAt desc, p.id desc""")
+    List<PostDTO> findDTOsByUserId(Long userId, Pageable pageable);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.PostDTO(p.id, p.title, p.content, p.createdAt, p.updatedAt)
+            from posts p
+            where p.user.id = :userId
+              and (p.createdAt < :afterCreatedAt or (p.createdAt = :afterCreatedAt and p.id < :after))
+            order by p.createdAt desc, p.id desc""")
+    List<PostDTO> findDTOsByUserIdAfter(Long userId, LocalDateTime afterCreatedAt, Long after, Pageable pageable);
+
+    // native so a cursor on a post soft deleted since is still found
+    @Query(nativeQuery = true, value = "select created_at from posts where id = :id")
+    Optional<LocalDateTime> findCreatedAtById(Long id);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.TimelinePostDTO(p.id, p.title, p.content, u.id, u.name, p.createdAt, p.updatedAt)
+            from posts p join p.user u
+            order by p.createdAt desc, p.id desc""")
+    List<TimelinePostDTO> findLatest(Pageable pageable);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.TimelinePostDTO(p.id, p.title, p.content, u.id, u.name, p.createdAt, p.updatedAt)
+            from posts p join p.user u
+            where p.createdAt < :afterCreatedAt or (p.createdAt = :afterCreatedAt and p.id < :after)
+            order by p.createdAt desc, p.id desc""")
+    List<TimelinePostDTO> findLatestAfter(LocalDateTime afterCreatedAt, Long after, Pageable pageable);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.TimelinePostDTO(p.id, p.title, p.content, u.id, u.name, p.createdAt, p.updatedAt)
+            from posts p join p.user u
+            where p.id in :ids""")
+    List<TimelinePostDTO> findTimelineDTOsByIdIn(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.TimelinePostDTO(p.id, p.title, p.content, u.id, u.name, p.createdAt, p.updatedAt)
+            from posts p join p.user u
+            order by p.id""")
+    Stream<TimelinePostDTO> streamAllTimelineDTOs();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.PostExportDTO(p.id, p.title, p.content, p.user.id, p.createdAt, p.updatedAt)
+            from posts p
+            order by p.id""")
+    Stream<PostExportDTO> streamAllExportDTOs();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update posts p set p.deletedAt = :now where p.user.id = :userId")
+    int softDeleteAllByUserId(Long userId, LocalDateTime now);
+
+    // live posts of a deleted user, written while the deletion was committing
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "posts"))
+    @Query(nativeQuery = true, value = """
+            update posts set deleted_at = localtimestamp
+            where deleted_at is null
+              and user_id in (select id from users where deleted_at is not null)""")
+    int softDeleteOrphans();
+
+    // posts still referenced by a comment wait for the comment to be purged first
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "posts"))
+    @Query(nativeQuery = true, value = """
+            delete from posts
+            where id in (select p.id from posts p
+                         where p.deleted_at is not null
+                           and not exists (select 1 from comments c where c.post_id = p.id)
+                         order by p.id fetch first :batchSize rows only)""")
+    int purgeDeleted(int batchSize);
+
+    @Query(nativeQuery = true, value = "select count(*) from posts where deleted_at is not null")
+    long countDeleted();
 }
@@ -1,12 +1,68 @@
 package com.leonardus.socialmedia.repositories;
 
+import com.leonardus.socialmedia.dtos.UserDTO;
 import com.leonardus.socialmedia.entities.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+    // native so deleted users are included, their emails stay taken until the row is purged
+    @Query(nativeQuery = true, value = "select email from users")
+    Stream<String> streamAllEmails();
+
+    // includes deleted users, like streamAllEmails
+    @Query(nativeQuery = true, value = "select email from users where email in :emails")
+    List<String> findEmailsIn(Collection<String> emails);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.UserDTO(u.id, u.name, u.email, u.createdAt, u.updatedAt, u.version)
+            from users u
+            where u.id = :id""")
+    Optional<UserDTO> findDTOById(Long id);
+
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.UserDTO(u.id, u.name, u.email, u.createdAt, u.updatedAt, u.version)
+            from users u
+            where u.id > :after
+            order by u.id""")
+    List<UserDTO> findDTOsAfter(Long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.leonardus.socialmedia.dtos.UserDTO(u.id, u.name, u.email, u.createdAt, u.updatedAt, u.version)
+            from users u
+            order by u.id""")
+    Stream<UserDTO> streamAllDTOs();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update users u set u.deletedAt = :now where u.id = :userId and u.deletedAt is null")
+    int softDelete(Long userId, LocalDateTime now);
+
+    // users still referenced by a post or a comment wait for those to be purged first
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+    @Query(nativeQuery = true, value = """
+            delete from users
+            where id in (select u.id from users u
+                         where u.deleted_at is not null
+                           and not exists (select 1 from posts p where p.user_id = u.id)
+                           and not exists (select 1 from comments c where c.user_id = u.id)
+                         order by u.id fetch first :batchSize rows only)""")
+    int purgeDeleted(int batchSize);
+
+    @Query(nativeQuery = true, value = "select count(*) from users where deleted_at is not null")
+    long countDeleted();
 }
@@ -0,0 +1,25 @@
+package com.leonardus.socialmedia.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// runs in-memory changes only once the surrounding transaction, if any, has committed
+final class AfterCommit {
+
+    private AfterCommit(){
+    }
+
+    static void run(Runnable change){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            change.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit(){
+                change.run();
+            }
+        });
+    }
+}
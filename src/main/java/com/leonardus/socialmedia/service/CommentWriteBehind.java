@@ -0,0 +1,266 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.service.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Opt-in write-behind for single comments (app.comments.write-behind.enabled). The comment gets its id from the
+ * same Hibernate generator as every other comment and is queued; one flusher thread inserts whatever has queued up
+ * meanwhile as a JDBC batch in a single transaction, so a burst pays one commit per batch instead of one per
+ * comment. A full queue makes callers wait up to offer-timeout and then answers 503. The comments were already
+ * acknowledged, so a failure of the database rather than of the rows (pool timeout, lost connection, failover) keeps
+ * the batch and retries it with backoff while the queue fills up behind it; only a row the database rejects, like
+ * one whose post was purged in between, is dropped. Stopping the context flushes what is left, after the web server
+ * has stopped taking requests.
+ */
+@Slf4j
+@Component
+public class CommentWriteBehind implements SmartLifecycle {
+    private static final String INSERT = """
+            insert into comments (id, content, user_id, post_id, created_at, updated_at)
+            values (?, ?, ?, ?, ?, ?)""";
+    private static final long POLL_MILLIS = 100;
+
+    private record Pending(Long id, String content, Long userId, Long postId, LocalDateTime createdAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactoryImplementor sessionFactory;
+    private final BeforeExecutionGenerator idGenerator;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batches;
+    private final Counter rejected;
+    private final Counter dropped;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public CommentWriteBehind(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+                              @Value("${app.comments.write-behind.enabled:false}") boolean enabled,
+                              @Value("${app.comments.write-behind.capacity:10000}") int capacity,
+                              @Value("${app.comments.write-behind.batch-size:500}") int batchSize,
+                              @Value("${app.comments.write-behind.offer-timeout:PT0.1S}") Duration offerTimeout,
+                              @Value("${app.comments.write-behind.retry.initial-backoff:PT0.1S}") Duration initialBackoff,
+                              @Value("${app.comments.write-behind.retry.max-backoff:PT5S}") Duration maxBackoff){
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.idGenerator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Comment.class).getGenerator();
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoff.toMillis());
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("comments.write.behind.queue", queue, BlockingQueue::size)
+                .description("Comments accepted and not written yet")
+                .register(meterRegistry);
+        this.batches = DistributionSummary.builder("comments.write.behind.batch")
+                .description("Comments written per transaction")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("comments.write.behind.rejected")
+                .description("Comments refused because the queue stayed full")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("comments.write.behind.dropped")
+                .description("Accepted comments that could not be written")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public CommentDTO submit(Long userId, Long postId, String content){
+        if (!running){
+            throw new ServiceUnavailableException("Comments are not being accepted right now", 1);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Pending comment = new Pending(this.nextId(), content, userId, postId, now);
+        try {
+            if (!queue.offer(comment, offerTimeoutNanos, TimeUnit.NANOSECONDS)){
+                rejected.increment();
+                throw new ServiceUnavailableException("Too many comments waiting to be written", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Comments are not being accepted right now", 1);
+        }
+
+        return new CommentDTO(comment.id(), content, now, now);
+    }
+
+    @Override
+    public void start(){
+        running = true;
+        flusher = new Thread(this::flushLoop, "comment-write-behind");
+        flusher.start();
+    }
+
+    @Override
+    public void stop(){
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning(){
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup(){
+        return enabled;
+    }
+
+    // below the web server's phases: started before it takes requests, stopped once it no longer does
+    @Override
+    public int getPhase(){
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void flushLoop(){
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()){
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null){
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                this.write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment(batch.size());
+                log.error("Interrupted, dropped {} comments", batch.size());
+                return;
+            } catch (RuntimeException e) {
+                dropped.increment(batch.size());
+                log.error("Dropped {} comments", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) throws InterruptedException {
+        try {
+            this.retryWhileTransient(() -> transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), CommentWriteBehind::bind)));
+        } catch (DataAccessException e) {
+            if (isTransient(e)){
+                throw e;
+            }
+            // a user or post purged after the check, write the others one by one
+            for (Pending comment : batch){
+                try {
+                    this.retryWhileTransient(() -> jdbcTemplate.update(INSERT, statement -> bind(statement, comment)));
+                } catch (DataAccessException rejectedRow) {
+                    if (isTransient(rejectedRow)){
+                        throw rejectedRow;
+                    }
+                    dropped.increment();
+                    log.warn("Dropped comment {}: {}", comment.id(), rejectedRow.getMessage());
+                }
+            }
+        }
+        batches.record(batch.size());
+
+        // the rows went around Hibernate, so its cached comment collections may be missing them
+        if (sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()){
+            for (Pending comment : batch){
+                sessionFactory.getCache().evictCollectionData(User.class.getName() + ".comments", comment.userId());
+                sessionFactory.getCache().evictCollectionData(Post.class.getName() + ".comments", comment.postId());
+            }
+        }
+    }
+
+    // backs off exponentially up to max-backoff; once stopping, gives up after waiting max-backoff once
+    private void retryWhileTransient(Runnable write) throws InterruptedException {
+        long backoff = initialBackoffMillis;
+        while (true){
+            try {
+                write.run();
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || (!running && backoff == maxBackoffMillis)){
+                    throw e;
+                }
+                log.warn("Could not write comments, retrying in {} ms: {}", backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+        }
+    }
+
+    // the database or the connection to it failed, not the rows, so the same write may succeed later
+    private static boolean isTransient(RuntimeException e){
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private Long nextId(){
+        try (StatelessSession session = sessionFactory.openStatelessSession()){
+            return (Long) idGenerator.generate((SharedSessionContractImplementor) session, null, null, EventType.INSERT);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Pending comment) throws SQLException {
+        Timestamp createdAt = Timestamp.valueOf(comment.createdAt());
+        statement.setLong(1, comment.id());
+        statement.setString(2, comment.content());
+        statement.setLong(3, comment.userId());
+        statement.setLong(4, comment.postId());
+        statement.setTimestamp(5, createdAt);
+        statement.setTimestamp(6, createdAt);
+    }
+}
@@ -0,0 +1,125 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Physically removes the rows soft deleted by UserService.deleteById. Each run purges at most batchSize rows per
+ * table in one short transaction, so the rate is bounded by batchSize per app.compaction.interval: comments first,
+ * then posts no comment points to anymore and finally users without posts or comments. Runs only touch the database
+ * while something is waiting to be purged.
+ */
+@Slf4j
+@Component
+public class CompactionJob {
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicLong usersBacklog = new AtomicLong();
+    private final AtomicLong postsBacklog = new AtomicLong();
+    private final AtomicLong commentsBacklog = new AtomicLong();
+    private final Counter usersPurged;
+    private final Counter postsPurged;
+    private final Counter commentsPurged;
+    private final Timer batchTimer;
+
+    public CompactionJob(UserRepository userRepository, PostRepository postRepository,
+                         CommentRepository commentRepository, TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry, @Value("${app.compaction.batch-size:500}") int batchSize){
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+
+        this.usersPurged = purgedCounter(meterRegistry, "users");
+        this.postsPurged = purgedCounter(meterRegistry, "posts");
+        this.commentsPurged = purgedCounter(meterRegistry, "comments");
+        backlogGauge(meterRegistry, "users", usersBacklog);
+        backlogGauge(meterRegistry, "posts", postsBacklog);
+        backlogGauge(meterRegistry, "comments", commentsBacklog);
+        this.batchTimer = Timer.builder("compaction.batch")
+                .description("Time to purge one batch of soft deleted rows")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load(){
+        long backlog = this.refreshBacklog();
+        pending.set(backlog > 0);
+
+        if (backlog > 0){
+            log.info("{} soft deleted rows waiting to be purged", backlog);
+        }
+    }
+
+    public void requestRun(){
+        pending.set(true);
+    }
+
+    @Scheduled(initialDelayString = "${app.compaction.interval:PT1S}", fixedDelayString = "${app.compaction.interval:PT1S}")
+    public void run(){
+        // cleared before the batch, so a deletion committed meanwhile asks for another run
+        if (pending.getAndSet(false) && this.compact() > 0){
+            pending.set(true);
+        }
+    }
+
+    // purges one batch and returns how many rows are still waiting
+    public long compact(){
+        int[] purged = batchTimer.record(() -> transactionTemplate.execute(status -> {
+            postRepository.softDeleteOrphans();
+            commentRepository.softDeleteOrphans();
+
+            int comments = commentRepository.purgeDeleted(batchSize);
+            int posts = postRepository.purgeDeleted(batchSize);
+            int users = userRepository.purgeDeleted(batchSize);
+            return new int[]{users, posts, comments};
+        }));
+        usersPurged.increment(purged[0]);
+        postsPurged.increment(purged[1]);
+        commentsPurged.increment(purged[2]);
+
+        return this.refreshBacklog();
+    }
+
+    private long refreshBacklog(){
+        usersBacklog.set(userRepository.countDeleted());
+        postsBacklog.set(postRepository.countDeleted());
+        commentsBacklog.set(commentRepository.countDeleted());
+
+        return usersBacklog.get() + postsBacklog.get() + commentsBacklog.get();
+    }
+
+    private static Counter purgedCounter(MeterRegistry meterRegistry, String table){
+        return Counter.builder("compaction.purged")
+                .description("Soft deleted rows physically removed")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    private static void backlogGauge(MeterRegistry meterRegistry, String table, AtomicLong backlog){
+        Gauge.builder("compaction.backlog", backlog, AtomicLong::get)
+                .description("Soft deleted rows waiting to be purged")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
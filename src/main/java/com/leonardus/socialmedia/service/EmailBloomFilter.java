@@ -0,0 +1,130 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.config.ReadWriteRoutingDataSource;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/*
+ * Bloom filter over the registered emails. mightContain never returns false for an email that was put,
+ * so a false answer lets the import skip the database for that email; a true answer may be a false positive
+ * and has to be confirmed with findEmailsIn. Emails of deleted or updated users are never removed, they
+ * only raise the false-positive rate until the filter is rebuilt on the next startup.
+ */
+@Slf4j
+@Component
+public class EmailBloomFilter {
+    private final UserRepository userRepository;
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLong bitCount = new AtomicLong();
+    private volatile boolean loaded;
+
+    public EmailBloomFilter(UserRepository userRepository, MeterRegistry meterRegistry,
+                            @Value("${app.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${app.email-filter.false-positive-probability:0.01}") double falsePositiveProbability){
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+
+        this.userRepository = userRepository;
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = words * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        Gauge.builder("users.email.filter.false.positive.rate", this, EmailBloomFilter::falsePositiveRate)
+                .description("Estimated false-positive rate of the email Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("users.email.filter.memory", this, EmailBloomFilter::memoryBytes)
+                .description("Memory used by the bits of the email Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load(){
+        // a lagging replica would leave rows out of the filter for good
+        ReadWriteRoutingDataSource.usePrimary();
+        long start = System.nanoTime();
+        try (Stream<String> emails = userRepository.streamAllEmails()){
+            emails.forEach(this::put);
+        }
+        loaded = true;
+
+        log.info("Email Bloom filter loaded in {} ms: {} bytes, {} hash functions, false-positive rate {}",
+                (System.nanoTime() - start) / 1_000_000, this.memoryBytes(), hashFunctions, this.falsePositiveRate());
+    }
+
+    public void put(String email){
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashFunctions; i++){
+            long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0){
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+
+            if ((current & mask) == 0){
+                bitCount.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean mightContain(String email){
+        // until every registered email has been put, a negative answer could be wrong
+        if (!loaded){
+            return true;
+        }
+
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0xC2B2AE3D27D4EB4FL);
+
+        for (int i = 0; i < hashFunctions; i++){
+            long bit = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public double falsePositiveRate(){
+        return Math.pow((double) bitCount.get() / bitSize, hashFunctions);
+    }
+
+    public long memoryBytes(){
+        return bitSize / 8;
+    }
+
+    private static long hash(String value){
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++){
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash){
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,21 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.entities.User;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+// tells a taken email, a violation of User.EMAIL_CONSTRAINT, apart from any other integrity violation
+final class EmailConstraint {
+
+    private EmailConstraint(){
+    }
+
+    // H2 names the index behind the constraint ("PUBLIC.UK_USERS_EMAIL_INDEX_4 ON ..."), other databases the bare name
+    static boolean violatedBy(DataIntegrityViolationException e){
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(User.EMAIL_CONSTRAINT);
+    }
+}
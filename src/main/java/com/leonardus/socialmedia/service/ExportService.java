@@ -0,0 +1,61 @@
+package com.leonardus.socialmedia.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/*
+ * Full dumps as NDJSON, one object per line. The rows are DTO projections read through a JDBC cursor, so nothing
+ * is attached to the persistence context and each row can be collected as soon as it is written: memory stays the
+ * same whatever the number of rows.
+ */
+@Service
+@AllArgsConstructor
+public class ExportService {
+    UserRepository userRepository;
+    PostRepository postRepository;
+    CommentRepository commentRepository;
+    ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream out) throws IOException {
+        this.write(userRepository.streamAllDTOs(), out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportPosts(OutputStream out) throws IOException {
+        this.write(postRepository.streamAllExportDTOs(), out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportComments(OutputStream out) throws IOException {
+        this.write(commentRepository.streamAllExportDTOs(), out);
+    }
+
+    private void write(Stream<?> rows, OutputStream out) throws IOException {
+        // the generator's buffer decides when bytes go out instead of a flush after every row
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (rows; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)){
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<?> iterator = rows.iterator();
+            while (iterator.hasNext()){
+                rowWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
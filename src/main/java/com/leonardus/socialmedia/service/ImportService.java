@@ -0,0 +1,183 @@
+package com.leonardus.socialmedia.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.leonardus.socialmedia.dtos.ImportResultDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.mappers.UserMapper;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * NDJSON import of UserInsertDTO records. The body is read one line at a time and handled in windows of batchSize
+ * lines: invalid lines are reported right away, the emails of the valid ones are checked with a single IN query
+ * (only those the Bloom filter cannot rule out) and the rest is inserted in one transaction with JDBC batching.
+ * Each window's results are written, in line order, before the next window is read, so memory does not depend
+ * on the size of the input.
+ */
+@Service
+public class ImportService {
+    private static final String EMAIL_TAKEN = "Email is already registered";
+    private static final String NOT_INSERTED = "The line could not be inserted";
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final EmailBloomFilter emailFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    private record Line(long number, UserInsertDTO user) {}
+
+    public ImportService(UserRepository userRepository, UserMapper userMapper, Validator validator,
+                         EmailBloomFilter emailFilter, TransactionTemplate transactionTemplate,
+                         EntityManager entityManager, ObjectMapper objectMapper,
+                         @Value("${app.import.batch-size:500}") int batchSize){
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.emailFilter = emailFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public void importUsers(InputStream in, OutputStream out) throws IOException {
+        ObjectReader recordReader = objectMapper.readerFor(UserInsertDTO.class);
+        ObjectWriter resultWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)){
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            List<ImportResultDTO> results = new ArrayList<>();
+            List<Line> valid = new ArrayList<>();
+            long number = 0;
+            String text;
+            while ((text = reader.readLine()) != null){
+                number++;
+                if (text.isBlank()){
+                    continue;
+                }
+
+                try {
+                    UserInsertDTO user = recordReader.readValue(text);
+                    Optional<String> violation = this.validate(user);
+                    if (violation.isPresent()){
+                        results.add(new ImportResultDTO(number, null, violation.get()));
+                    } else {
+                        valid.add(new Line(number, user));
+                    }
+                } catch (JsonProcessingException e) {
+                    results.add(new ImportResultDTO(number, null, "The line is not a valid JSON object"));
+                }
+
+                if (results.size() + valid.size() >= batchSize){
+                    this.writeWindow(results, valid, resultWriter, generator);
+                }
+            }
+            this.writeWindow(results, valid, resultWriter, generator);
+        }
+    }
+
+    private void writeWindow(List<ImportResultDTO> results, List<Line> valid, ObjectWriter resultWriter,
+                             JsonGenerator generator) throws IOException {
+        if (!valid.isEmpty()){
+            results.addAll(this.insert(valid));
+        }
+        results.sort(Comparator.comparingLong(ImportResultDTO::getLine));
+
+        for (ImportResultDTO result : results){
+            resultWriter.writeValue(generator, result);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        results.clear();
+        valid.clear();
+    }
+
+    private List<ImportResultDTO> insert(List<Line> lines){
+        List<ImportResultDTO> results = new ArrayList<>();
+
+        Set<String> candidates = new HashSet<>();
+        for (Line line : lines){
+            if (emailFilter.mightContain(line.user().getEmail())){
+                candidates.add(line.user().getEmail());
+            }
+        }
+        Set<String> taken = candidates.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(userRepository.findEmailsIn(candidates));
+
+        List<Line> accepted = new ArrayList<>();
+        for (Line line : lines){
+            // the first line with an email wins, later ones in the same window are duplicates
+            if (taken.add(line.user().getEmail())){
+                accepted.add(line);
+            } else {
+                results.add(new ImportResultDTO(line.number(), null, EMAIL_TAKEN));
+            }
+        }
+        if (accepted.isEmpty()){
+            return results;
+        }
+
+        try {
+            List<User> users = this.save(accepted);
+            for (int i = 0; i < accepted.size(); i++){
+                results.add(new ImportResultDTO(accepted.get(i).number(), users.get(i).getId(), null));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent insert took one of the emails or a line broke another constraint, find out which lines
+            // are still fine one by one
+            for (Line line : accepted){
+                try {
+                    results.add(new ImportResultDTO(line.number(), this.save(List.of(line)).get(0).getId(), null));
+                } catch (DataIntegrityViolationException violation) {
+                    String error = EmailConstraint.violatedBy(violation) ? EMAIL_TAKEN : NOT_INSERTED;
+                    results.add(new ImportResultDTO(line.number(), null, error));
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<User> save(List<Line> lines){
+        List<User> users = transactionTemplate.execute(status -> {
+            List<User> saved = userRepository.saveAll(lines.stream().map(line -> userMapper.toEntity(line.user())).toList());
+            userRepository.flush();
+            // the entity manager can outlive the transaction, keep it from collecting every imported user
+            entityManager.clear();
+            return saved;
+        });
+        users.forEach(user -> emailFilter.put(user.getEmail()));
+        return users;
+    }
+
+    private Optional<String> validate(UserInsertDTO user){
+        if (user == null){
+            return Optional.of("The item must not be null");
+        }
+
+        return validator.validate(user).stream().map(ConstraintViolation::getMessage).findFirst();
+    }
+}
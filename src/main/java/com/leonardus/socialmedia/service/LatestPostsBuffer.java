@@ -0,0 +1,178 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * The most recent posts across all users, newest first, in a fixed-size ring. The ring always holds the newest
+ * posts without gaps, so a page that starts inside it is served from memory and only what is older than its tail
+ * has to be read from the database.
+ */
+@Slf4j
+@Component
+public class LatestPostsBuffer {
+    private static final Comparator<TimelinePostDTO> NEWEST_FIRST = Comparator
+            .comparing(TimelinePostDTO::getCreatedAt)
+            .thenComparing(TimelinePostDTO::getId)
+            .reversed();
+
+    private final PostRepository postRepository;
+    private final TimelinePostDTO[] ring;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int head;
+    private int size;
+    // true while the ring holds every post, then reading past its tail needs no query
+    private boolean complete;
+    private boolean loaded;
+
+    public record Slice(List<TimelinePostDTO> posts, boolean olderInDatabase) {}
+
+    public LatestPostsBuffer(PostRepository postRepository, @Value("${app.timeline.buffer-size:1000}") int capacity){
+        this.postRepository = postRepository;
+        this.ring = new TimelinePostDTO[capacity];
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load(){
+        lock.writeLock().lock();
+        try {
+            List<TimelinePostDTO> posts = postRepository.findLatest(PageRequest.ofSize(ring.length));
+            for (int i = 0; i < posts.size(); i++){
+                ring[i] = posts.get(i);
+            }
+            head = 0;
+            size = posts.size();
+            complete = size < ring.length;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Latest posts buffer loaded with {} of {} posts", size, ring.length);
+    }
+
+    public void add(TimelinePostDTO post){
+        AfterCommit.run(() -> this.insert(post));
+    }
+
+    public void addAll(List<TimelinePostDTO> posts){
+        AfterCommit.run(() -> posts.forEach(this::insert));
+    }
+
+    public void renameAuthor(Long authorId, String authorName){
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < size; i++){
+                    TimelinePostDTO post = this.get(i);
+                    if (post.getAuthorId().equals(authorId)){
+                        ring[this.index(i)] = new TimelinePostDTO(post.getId(), post.getTitle(), post.getContent(),
+                                authorId, authorName, post.getCreatedAt(), post.getUpdatedAt());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAuthor(Long authorId){
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                int kept = 0;
+                for (int i = 0; i < size; i++){
+                    TimelinePostDTO post = this.get(i);
+                    if (!post.getAuthorId().equals(authorId)){
+                        ring[this.index(kept++)] = post;
+                    }
+                }
+                for (int i = kept; i < size; i++){
+                    ring[this.index(i)] = null;
+                }
+                size = kept;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // up to count posts older than the post with id after, or empty when the ring cannot tell where that is
+    public Optional<Slice> latest(Long after, int count){
+        lock.readLock().lock();
+        try {
+            if (!loaded){
+                return Optional.empty();
+            }
+
+            int start = 0;
+            if (after != null){
+                while (start < size && !this.get(start).getId().equals(after)){
+                    start++;
+                }
+                if (start == size){
+                    return Optional.empty();
+                }
+                start++;
+            }
+
+            List<TimelinePostDTO> posts = new ArrayList<>(Math.min(count, size - start));
+            for (int i = start; i < size && posts.size() < count; i++){
+                posts.add(this.get(i));
+            }
+            return Optional.of(new Slice(posts, !complete));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(TimelinePostDTO post){
+        lock.writeLock().lock();
+        try {
+            // new posts almost always go to the front, the scan only runs for posts committed out of order
+            int position = 0;
+            while (position < size && NEWEST_FIRST.compare(this.get(position), post) < 0){
+                position++;
+            }
+            if (position < size && this.get(position).getId().equals(post.getId())){
+                return;
+            }
+            if (position == size && (size == ring.length || !complete)){
+                return;
+            }
+
+            if (size == ring.length){
+                complete = false;
+            } else {
+                size++;
+            }
+            head = (head - 1 + ring.length) % ring.length;
+            for (int i = 0; i < position; i++){
+                ring[this.index(i)] = ring[this.index(i + 1)];
+            }
+            ring[this.index(position)] = post;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TimelinePostDTO get(int position){
+        return ring[this.index(position)];
+    }
+
+    private int index(int position){
+        return (head + position) % ring.length;
+    }
+}
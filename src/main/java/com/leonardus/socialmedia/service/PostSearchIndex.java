@@ -0,0 +1,352 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.config.ReadWriteRoutingDataSource;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/*
+ * Inverted index over post titles and contents, ranked with BM25. Each term maps to the ids of the posts that
+ * contain it, kept sorted and stored as varint-encoded gaps followed by the term frequency, which takes two or three
+ * bytes per posting. Title terms count twice. Removed posts are only dropped from the document table and skipped
+ * while scoring; their postings are purged once they make up a quarter of the index.
+ */
+@Slf4j
+@Component
+public class PostSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+
+    private final PostRepository postRepository;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Timer queryTimer;
+    private long totalLength;
+    private int removedDocuments;
+    private boolean loaded;
+
+    private record Document(long authorId, int length) {}
+
+    public PostSearchIndex(PostRepository postRepository, MeterRegistry meterRegistry){
+        this.postRepository = postRepository;
+        this.queryTimer = Timer.builder("posts.search.query")
+                .description("Time to rank the posts matching a search query")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("posts.search.index.memory", this, PostSearchIndex::memoryBytes)
+                .description("Estimated memory used by the post search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("posts.search.index.documents", this, PostSearchIndex::documentCount)
+                .register(meterRegistry);
+        Gauge.builder("posts.search.index.terms", this, PostSearchIndex::termCount)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load(){
+        // a lagging replica would leave rows out of the index for good
+        ReadWriteRoutingDataSource.usePrimary();
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try (Stream<TimelinePostDTO> posts = postRepository.streamAllTimelineDTOs()){
+            posts.forEach(this::insert);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Post search index loaded in {} ms: {} posts, {} terms, {} bytes",
+                (System.nanoTime() - start) / 1_000_000, this.documentCount(), this.termCount(), this.memoryBytes());
+    }
+
+    public void add(TimelinePostDTO post){
+        this.addAll(List.of(post));
+    }
+
+    public void addAll(List<TimelinePostDTO> posts){
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                // anything committed before the load started is read by the load itself
+                if (loaded){
+                    posts.forEach(this::insert);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAuthor(Long authorId){
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                Iterator<Document> iterator = documents.values().iterator();
+                while (iterator.hasNext()){
+                    Document document = iterator.next();
+                    if (document.authorId() == authorId){
+                        totalLength -= document.length();
+                        removedDocuments++;
+                        iterator.remove();
+                    }
+                }
+                if (removedDocuments > documents.size() / 4){
+                    this.purgeRemovedDocuments();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // ids of the best matching posts, best first
+    public List<Long> search(String query, int limit){
+        return queryTimer.record(() -> {
+            Set<String> terms = new LinkedHashSet<>(tokenize(query));
+
+            lock.readLock().lock();
+            try {
+                if (documents.isEmpty()){
+                    return List.of();
+                }
+
+                double averageLength = (double) totalLength / documents.size();
+                Map<Long, Double> scores = new HashMap<>();
+                for (String term : terms){
+                    PostingList postingList = postings.get(term);
+                    if (postingList == null){
+                        continue;
+                    }
+
+                    double idf = Math.log(1 + (documents.size() - postingList.size + 0.5) / (postingList.size + 0.5));
+                    postingList.forEach((id, frequency) -> {
+                        Document document = documents.get(id);
+                        if (document != null){
+                            double norm = K1 * (1 - B + B * document.length() / averageLength);
+                            scores.merge(id, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                        }
+                    });
+                }
+
+                // keeps only the best limit scores instead of sorting every match
+                Comparator<Map.Entry<Long, Double>> worstFirst = Map.Entry.<Long, Double>comparingByValue()
+                        .thenComparing(Map.Entry.comparingByKey());
+                PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(worstFirst);
+                for (Map.Entry<Long, Double> score : scores.entrySet()){
+                    best.add(score);
+                    if (best.size() > limit){
+                        best.poll();
+                    }
+                }
+
+                LinkedList<Long> ids = new LinkedList<>();
+                while (!best.isEmpty()){
+                    ids.addFirst(best.poll().getKey());
+                }
+                return ids;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    public int documentCount(){
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount(){
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // posting bytes plus a rough per-entry overhead for the hash maps, terms and documents
+    public long memoryBytes(){
+        lock.readLock().lock();
+        try {
+            long bytes = documents.size() * 80L;
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()){
+                bytes += 120 + entry.getKey().length() + entry.getValue().bytes.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text){
+        List<String> tokens = new ArrayList<>();
+        if (text == null){
+            return tokens;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++){
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK){
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)){
+                token.append(Character.toLowerCase(c));
+            } else if (!token.isEmpty()){
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private void insert(TimelinePostDTO post){
+        if (documents.containsKey(post.getId())){
+            return;
+        }
+
+        List<String> title = tokenize(post.getTitle());
+        List<String> content = tokenize(post.getContent());
+        Map<String, Integer> frequencies = new HashMap<>();
+        title.forEach(term -> frequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+        content.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new PostingList()).add(post.getId(), frequency));
+        documents.put(post.getId(), new Document(post.getAuthorId(), title.size() + content.size()));
+        totalLength += title.size() + content.size();
+    }
+
+    private void purgeRemovedDocuments(){
+        Iterator<PostingList> iterator = postings.values().iterator();
+        while (iterator.hasNext()){
+            PostingList postingList = iterator.next();
+            postingList.retain(documents::containsKey);
+            if (postingList.size == 0){
+                iterator.remove();
+            }
+        }
+        removedDocuments = 0;
+    }
+
+    interface PostingConsumer {
+        void accept(long id, int frequency);
+    }
+
+    static final class PostingList {
+        byte[] bytes = new byte[8];
+        int length;
+        int size;
+        long lastId;
+
+        void add(long id, int frequency){
+            // ids come from a sequence, so they only arrive out of order when commits race
+            if (size > 0 && id <= lastId){
+                this.insertOutOfOrder(id, frequency);
+                return;
+            }
+
+            this.write(id - lastId);
+            this.write(frequency);
+            lastId = id;
+            size++;
+        }
+
+        void forEach(PostingConsumer consumer){
+            int[] position = {0};
+            long id = 0;
+            for (int i = 0; i < size; i++){
+                id += this.read(position);
+                consumer.accept(id, (int) this.read(position));
+            }
+        }
+
+        void retain(LongPredicate keep){
+            long[] ids = new long[size];
+            int[] frequencies = new int[size];
+            int[] kept = {0};
+            this.forEach((id, frequency) -> {
+                if (keep.test(id)){
+                    ids[kept[0]] = id;
+                    frequencies[kept[0]++] = frequency;
+                }
+            });
+            this.rewrite(ids, frequencies, kept[0]);
+        }
+
+        private void insertOutOfOrder(long newId, int newFrequency){
+            long[] ids = new long[size + 1];
+            int[] frequencies = new int[size + 1];
+            int[] count = {0};
+            boolean[] inserted = {false};
+            this.forEach((id, frequency) -> {
+                if (!inserted[0] && newId <= id){
+                    ids[count[0]] = newId;
+                    frequencies[count[0]++] = newFrequency;
+                    inserted[0] = true;
+                    if (newId == id){
+                        return;
+                    }
+                }
+                ids[count[0]] = id;
+                frequencies[count[0]++] = frequency;
+            });
+            this.rewrite(ids, frequencies, count[0]);
+        }
+
+        private void rewrite(long[] ids, int[] frequencies, int count){
+            bytes = new byte[Math.max(8, count * 3)];
+            length = 0;
+            size = 0;
+            lastId = 0;
+            for (int i = 0; i < count; i++){
+                this.add(ids[i], frequencies[i]);
+            }
+        }
+
+        private void write(long value){
+            if (length + 10 > bytes.length){
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0){
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private long read(int[] position){
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@AllArgsConstructor
+public class PostService {
+    PostRepository postRepository;
+    LatestPostsBuffer latestPosts;
+    PostSearchIndex searchIndex;
+
+    // a cursor post whose author was deleted is gone from the buffer, the page then comes from the database
+    public CursorPageDTO<TimelinePostDTO> findLatest(Long after, LocalDateTime afterCreatedAt, int limit){
+        int pageSize = CursorPageDTO.pageSize(limit);
+        Optional<LatestPostsBuffer.Slice> slice = latestPosts.latest(after, pageSize + 1);
+
+        if (slice.isEmpty()){
+            return CursorPageDTO.of(this.findLatestInDatabase(after, afterCreatedAt, pageSize + 1), pageSize,
+                    TimelinePostDTO::getId, TimelinePostDTO::getCreatedAt);
+        }
+
+        List<TimelinePostDTO> posts = new ArrayList<>(slice.get().posts());
+        if (posts.size() <= pageSize && slice.get().olderInDatabase()){
+            int count = pageSize + 1 - posts.size();
+            TimelinePostDTO last = posts.isEmpty() ? null : posts.get(posts.size() - 1);
+            posts.addAll(last == null
+                    ? this.findLatestInDatabase(after, afterCreatedAt, count)
+                    : this.findLatestInDatabase(last.getId(), last.getCreatedAt(), count));
+        }
+
+        return CursorPageDTO.of(posts, pageSize, TimelinePostDTO::getId, TimelinePostDTO::getCreatedAt);
+    }
+
+    public List<TimelinePostDTO> search(String query, int limit){
+        List<Long> ids = searchIndex.search(query, CursorPageDTO.pageSize(limit));
+        if (ids.isEmpty()){
+            return List.of();
+        }
+
+        Map<Long, TimelinePostDTO> posts = postRepository.findTimelineDTOsByIdIn(ids).stream()
+                .collect(Collectors.toMap(TimelinePostDTO::getId, Function.identity()));
+
+        return ids.stream().map(posts::get).filter(Objects::nonNull).toList();
+    }
+
+    private List<TimelinePostDTO> findLatestInDatabase(Long after, LocalDateTime afterCreatedAt, int count){
+        PageRequest page = PageRequest.ofSize(count);
+
+        return after == null
+                ? postRepository.findLatest(page)
+                : Optional.ofNullable(afterCreatedAt).or(() -> postRepository.findCreatedAtById(after))
+                        .map(createdAt -> postRepository.findLatestAfter(createdAt, after, page))
+                        .orElse(List.of());
+    }
+}
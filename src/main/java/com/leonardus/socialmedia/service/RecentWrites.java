@@ -0,0 +1,53 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.config.ReadWriteRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Users written in the last app.datasource.replica.lag. Reads about them stay on the primary, so whoever created
+ * or changed a user sees the change even while the replica is still behind. Without a replica the pin is a no-op.
+ */
+@Component
+public class RecentWrites {
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final long lagNanos;
+    private final Map<Long, Long> writtenAt = new ConcurrentHashMap<>();
+
+    public RecentWrites(@Value("${app.datasource.replica.lag:PT1S}") Duration lag){
+        this.lagNanos = lag.toNanos();
+    }
+
+    public void record(Long userId){
+        long now = System.nanoTime();
+        writtenAt.put(userId, now);
+
+        if (writtenAt.size() > PRUNE_THRESHOLD){
+            writtenAt.values().removeIf(at -> now - at > lagNanos);
+        }
+    }
+
+    public boolean isRecent(Long userId){
+        Long at = writtenAt.get(userId);
+        if (at == null){
+            return false;
+        }
+        if (System.nanoTime() - at > lagNanos){
+            writtenAt.remove(userId, at);
+            return false;
+        }
+        return true;
+    }
+
+    // pins the current read-only transaction to the primary when the user was written recently
+    public void readYourWrites(Long userId){
+        if (this.isRecent(userId)){
+            ReadWriteRoutingDataSource.usePrimary();
+        }
+    }
+}
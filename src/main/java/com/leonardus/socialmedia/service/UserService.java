@@ -1,99 +1,246 @@
 package com.leonardus.socialmedia.service;
 
+import com.leonardus.socialmedia.config.CacheConfig;
 import com.leonardus.socialmedia.dtos.*;
 import com.leonardus.socialmedia.entities.Comment;
 import com.leonardus.socialmedia.entities.Post;
 import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.mappers.CommentMapper;
+import com.leonardus.socialmedia.mappers.PostMapper;
+import com.leonardus.socialmedia.mappers.UserMapper;
 import com.leonardus.socialmedia.repositories.CommentRepository;
 import com.leonardus.socialmedia.repositories.PostRepository;
 import com.leonardus.socialmedia.repositories.UserRepository;
 import com.leonardus.socialmedia.service.exceptions.DataIntegrityViolationException;
 import com.leonardus.socialmedia.service.exceptions.ObjectNotFoundException;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @AllArgsConstructor
+@Timed("user.service")
 public class UserService {
     UserRepository userRepository;
     PostRepository postRepository;
     CommentRepository commentRepository;
-    ModelMapper mapper;
+    UserMapper userMapper;
+    PostMapper postMapper;
+    CommentMapper commentMapper;
+    Validator validator;
+    EmailBloomFilter emailFilter;
+    LatestPostsBuffer latestPosts;
+    PostSearchIndex searchIndex;
+    CompactionJob compaction;
+    RecentWrites recentWrites;
+    CommentWriteBehind commentWriteBehind;
 
-    public List<UserDTO> findAll(){
-        return userRepository.findAll().stream().map(user -> mapper.map(user, UserDTO.class)).toList();
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UserDTO> findAll(Long after, int limit){
+        int pageSize = CursorPageDTO.pageSize(limit);
+        List<UserDTO> users = userRepository.findDTOsAfter(after == null ? 0L : after, PageRequest.ofSize(pageSize + 1));
+
+        return CursorPageDTO.of(users, pageSize, UserDTO::getId);
     }
 
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#userId", sync = true)
     public UserDTO findById(Long userId){
-        User user = this.findByIdOrElseThrowObjectNotFoundException(userId);
-
-        return mapper.map(user, UserDTO.class);
+        recentWrites.readYourWrites(userId);
+        return userRepository.findDTOById(userId)
+                .orElseThrow(() -> new ObjectNotFoundException("Could not find user"));
     }
 
     public UserDTO create(UserInsertDTO userInsertDTO){
-        this.isEmailUnique(userInsertDTO);
-        User user = User.builder()
-                .name(userInsertDTO.getName())
-                .email(userInsertDTO.getEmail())
-                .build();
+        User user = this.saveOrElseThrowEmailTaken(userMapper.toEntity(userInsertDTO));
+        recentWrites.record(user.getId());
+        emailFilter.put(user.getEmail());
 
-        return mapper.map(userRepository.save(user), UserDTO.class);
+        return userMapper.toDTO(user);
     }
 
-    public UserDTO update(Long userId, UserInsertDTO userInsertDTO){
+    // expectedVersion comes from If-Match; the version is checked again when the update is flushed, so a write in
+    // between fails with an OptimisticLockingFailureException instead of being overwritten
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public UserDTO update(Long userId, UserInsertDTO userInsertDTO, Long expectedVersion){
         User user = this.findByIdOrElseThrowObjectNotFoundException(userId);
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())){
+            throw new PreconditionFailedException("The user has changed since the ETag in If-Match was read");
+        }
 
-        userInsertDTO.setId(userId);
-        this.isEmailUnique(userInsertDTO);
+        recentWrites.record(userId);
         user.setName(userInsertDTO.getName());
         user.setEmail(userInsertDTO.getEmail());
-        userRepository.save(user);
+        user = this.saveOrElseThrowEmailTaken(user);
+        emailFilter.put(user.getEmail());
+        latestPosts.renameAuthor(userId, user.getName());
 
-        return mapper.map(user, UserDTO.class);
+        return userMapper.toDTO(user);
     }
 
+    // three bulk updates whatever the size of the account, the rows are purged later by CompactionJob
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public void deleteById(Long userId){
-        User user = this.findByIdOrElseThrowObjectNotFoundException(userId);
-        userRepository.delete(user);
+        recentWrites.record(userId);
+        LocalDateTime now = LocalDateTime.now();
+        if (userRepository.softDelete(userId, now) == 0){
+            throw new ObjectNotFoundException("Could not find user");
+        }
+        // comments first, they find the user's posts through the posts that are not deleted yet
+        commentRepository.softDeleteAllByUserIdOrPostUserId(userId, now);
+        postRepository.softDeleteAllByUserId(userId, now);
+        AfterCommit.run(compaction::requestRun);
+        latestPosts.removeAuthor(userId);
+        searchIndex.removeAuthor(userId);
     }
 
-    public List<PostDTO> getPosts(Long userId){
-        return this.findByIdOrElseThrowObjectNotFoundException(userId).getPosts().stream()
-                .map(post -> mapper.map(post, PostDTO.class)).toList();
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PostDTO> getPosts(Long userId, Long after, LocalDateTime afterCreatedAt, int limit){
+        recentWrites.readYourWrites(userId);
+        this.existsByIdOrElseThrowObjectNotFoundException(userId);
+
+        int pageSize = CursorPageDTO.pageSize(limit);
+        PageRequest page = PageRequest.ofSize(pageSize + 1);
+        List<PostDTO> posts = after == null
+                ? postRepository.findDTOsByUserId(userId, page)
+                : Optional.ofNullable(afterCreatedAt).or(() -> postRepository.findCreatedAtById(after))
+                        .map(createdAt -> postRepository.findDTOsByUserIdAfter(userId, createdAt, after, page))
+                        .orElse(List.of());
+
+        return CursorPageDTO.of(posts, pageSize, PostDTO::getId, PostDTO::getCreatedAt);
     }
 
     public PostDTO createPost(Long userId, PostInsertDTO postInsertDTO){
         User user = this.findByIdOrElseThrowObjectNotFoundException(userId);
-        Post post = postRepository.save(mapper.map(postInsertDTO, Post.class));
+        Post post = postMapper.toEntity(postInsertDTO);
 
-        user.getPosts().add(post);
-        userRepository.save(user);
+        post.setUser(user);
+        recentWrites.record(userId);
+        post = postRepository.save(post);
+        TimelinePostDTO timelinePost = postMapper.toTimelineDTO(post, user);
+        latestPosts.add(timelinePost);
+        searchIndex.add(timelinePost);
 
-        return mapper.map(post, PostDTO.class);
+        return postMapper.toDTO(post);
     }
 
-    public List<CommentDTO> getComments(Long userId){
-        return this.findByIdOrElseThrowObjectNotFoundException(userId).getComments().stream()
-                .map(comment -> mapper.map(comment, CommentDTO.class)).toList();
+    @Transactional
+    public BulkInsertResultDTO<PostDTO> createPosts(Long userId, List<PostInsertDTO> postInsertDTOS){
+        User user = this.findByIdOrElseThrowObjectNotFoundException(userId);
+
+        List<Post> posts = new ArrayList<>();
+        List<BulkInsertErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < postInsertDTOS.size(); i++){
+            Optional<String> violation = this.validate(postInsertDTOS.get(i));
+            if (violation.isPresent()){
+                errors.add(new BulkInsertErrorDTO(i, violation.get()));
+                continue;
+            }
+
+            Post post = postMapper.toEntity(postInsertDTOS.get(i));
+            post.setUser(user);
+            posts.add(post);
+        }
+        recentWrites.record(userId);
+
+        posts = postRepository.saveAll(posts);
+        postRepository.flush();
+        List<TimelinePostDTO> timelinePosts = posts.stream().map(post -> postMapper.toTimelineDTO(post, user)).toList();
+        latestPosts.addAll(timelinePosts);
+        searchIndex.addAll(timelinePosts);
+
+        return new BulkInsertResultDTO<>(posts.stream().map(postMapper::toDTO).toList(), errors);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CommentDTO> getComments(Long userId, Long after, LocalDateTime afterCreatedAt, int limit){
+        recentWrites.readYourWrites(userId);
+        this.existsByIdOrElseThrowObjectNotFoundException(userId);
+
+        int pageSize = CursorPageDTO.pageSize(limit);
+        PageRequest page = PageRequest.ofSize(pageSize + 1);
+        // without afterCreatedAt, a cursor on a comment already purged has no position left and ends the list
+        List<CommentDTO> comments = after == null
+                ? commentRepository.findDTOsByUserId(userId, page)
+                : Optional.ofNullable(afterCreatedAt).or(() -> commentRepository.findCreatedAtById(after))
+                        .map(createdAt -> commentRepository.findDTOsByUserIdAfter(userId, createdAt, after, page))
+                        .orElse(List.of());
+
+        return CursorPageDTO.of(comments, pageSize, CommentDTO::getId, CommentDTO::getCreatedAt);
     }
 
     public CommentDTO createComment(Long userId, Long postId, CommentInsertDTO commentInsertDTO){
-        User user = findByIdOrElseThrowObjectNotFoundException(userId);
-        Post post = postRepository.findById(postId).orElseThrow(() -> new ObjectNotFoundException("Post not found"));
+        this.existsByIdOrElseThrowObjectNotFoundException(userId);
+        if (!postRepository.existsById(postId)){
+            throw new ObjectNotFoundException("Post not found");
+        }
 
-        Comment comment = commentRepository.save(mapper.map(commentInsertDTO, Comment.class));
+        Comment comment = commentMapper.toEntity(commentInsertDTO);
+        comment.setUser(userRepository.getReferenceById(userId));
+        comment.setPost(postRepository.getReferenceById(postId));
+        recentWrites.record(userId);
 
-        user.getComments().add(comment);
-        userRepository.save(user);
+        return commentMapper.toDTO(commentRepository.save(comment));
+    }
 
-        post.getComments().add(comment);
-        postRepository.save(post);
+    public boolean isCommentWriteBehind(){
+        return commentWriteBehind.isEnabled();
+    }
+
+    // same checks as createComment, the row itself is written shortly after by CommentWriteBehind
+    public CommentDTO acceptComment(Long userId, Long postId, CommentInsertDTO commentInsertDTO){
+        this.existsByIdOrElseThrowObjectNotFoundException(userId);
+        if (!postRepository.existsById(postId)){
+            throw new ObjectNotFoundException("Post not found");
+        }
+        recentWrites.record(userId);
 
-        return mapper.map(comment, CommentDTO.class);
+        return commentWriteBehind.submit(userId, postId, commentInsertDTO.getContent());
+    }
+
+    @Transactional
+    public BulkInsertResultDTO<CommentDTO> createComments(Long userId, Long postId, List<CommentInsertDTO> commentInsertDTOS){
+        this.existsByIdOrElseThrowObjectNotFoundException(userId);
+        if (!postRepository.existsById(postId)){
+            throw new ObjectNotFoundException("Post not found");
+        }
+        User user = userRepository.getReferenceById(userId);
+        Post post = postRepository.getReferenceById(postId);
+
+        List<Comment> comments = new ArrayList<>();
+        List<BulkInsertErrorDTO> errors = new ArrayList<>();
+        for (int i = 0; i < commentInsertDTOS.size(); i++){
+            Optional<String> violation = this.validate(commentInsertDTOS.get(i));
+            if (violation.isPresent()){
+                errors.add(new BulkInsertErrorDTO(i, violation.get()));
+                continue;
+            }
+
+            Comment comment = commentMapper.toEntity(commentInsertDTOS.get(i));
+            comment.setUser(user);
+            comment.setPost(post);
+            comments.add(comment);
+        }
+        recentWrites.record(userId);
+
+        comments = commentRepository.saveAll(comments);
+        commentRepository.flush();
+
+        return new BulkInsertResultDTO<>(comments.stream().map(commentMapper::toDTO).toList(), errors);
     }
 
     private User findByIdOrElseThrowObjectNotFoundException(Long userId){
@@ -101,11 +248,30 @@ public class UserService {
                 .orElseThrow(() -> new ObjectNotFoundException("Could not find user"));
     }
 
-    private void isEmailUnique(UserInsertDTO userInsertDTO){
-        Optional<User> user = userRepository.findByEmail(userInsertDTO.getEmail());
+    private void existsByIdOrElseThrowObjectNotFoundException(Long userId){
+        if (!userRepository.existsById(userId)){
+            throw new ObjectNotFoundException("Could not find user");
+        }
+    }
+
+    private Optional<String> validate(Object dto){
+        if (dto == null){
+            return Optional.of("The item must not be null");
+        }
+
+        return validator.validate(dto).stream().map(ConstraintViolation::getMessage).findFirst();
+    }
 
-        if (user.isPresent() && !user.get().getId().equals(userInsertDTO.getId())){
-            throw new DataIntegrityViolationException("Email is already registered");
+    // the unique constraint on email is the check, it also covers deleted users whose rows are not purged yet and
+    // concurrent requests for the same email, where a select before the write would let both through
+    private User saveOrElseThrowEmailTaken(User user){
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (org.springframework.dao.DataIntegrityViolationException e) {
+            if (EmailConstraint.violatedBy(e)){
+                throw new DataIntegrityViolationException("Email is already registered");
+            }
+            throw e;
         }
     }
 }
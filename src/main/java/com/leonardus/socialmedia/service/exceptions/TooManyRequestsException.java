@@ -0,0 +1,13 @@
+package com.leonardus.socialmedia.service.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyRequestsException extends RuntimeException{
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
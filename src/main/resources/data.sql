@@ -1,27 +1,33 @@
 -- users
 
-INSERT INTO users(name, email, created_at, updated_at)
-VALUES ('Leonardo', 'leonardo@gmail.com', '2022-1-1', '2022-8-12'),
-       ('Maria', 'maria@gmail.com', '2022-1-1', '2023-9-12'),
-       ('Gabriel', 'gabriel@gmail.com', '2022-1-7', '2023-11-12'),
-       ('Marcos', 'marcos@gmail.com', '2022-1-8', '2023-11-12'),
-       ('Felipe', 'felipe@gmail.com', '2022-1-7', '2023-1-12');
+INSERT INTO users(id, name, email, created_at, updated_at)
+VALUES (1, 'Leonardo', 'leonardo@gmail.com', '2022-1-1', '2022-8-12'),
+       (2, 'Maria', 'maria@gmail.com', '2022-1-1', '2023-9-12'),
+       (3, 'Gabriel', 'gabriel@gmail.com', '2022-1-7', '2023-11-12'),
+       (4, 'Marcos', 'marcos@gmail.com', '2022-1-8', '2023-11-12'),
+       (5, 'Felipe', 'felipe@gmail.com', '2022-1-7', '2023-1-12');
 
 
 --posts
 
-INSERT INTO posts(user_id, title, content, created_at, updated_at)
-VALUES (1, 'My first post', 'Hello World!', '2022-10-10', '2022-12-22'),
-       (1, 'My favorite language', 'Hello Java!', '2022-8-10', '2022-9-10'),
-       (2, 'My first language', 'Hello Python!', '2022-5-10', '2022-7-19'),
-       (3, 'My first post', 'Hello C++!', '2022-2-10', '2022-3-18'),
-       (4, 'My first post', 'Hello Rust!', '2022-1-10', '2022-2-12');
+INSERT INTO posts(id, user_id, title, content, created_at, updated_at)
+VALUES (1, 1, 'My first post', 'Hello World!', '2022-10-10', '2022-12-22'),
+       (2, 1, 'My favorite language', 'Hello Java!', '2022-8-10', '2022-9-10'),
+       (3, 2, 'My first language', 'Hello Python!', '2022-5-10', '2022-7-19'),
+       (4, 3, 'My first post', 'Hello C++!', '2022-2-10', '2022-3-18'),
+       (5, 4, 'My first post', 'Hello Rust!', '2022-1-10', '2022-2-12');
 
 
 --comments
-INSERT INTO comments(user_id, post_id, content, created_at, updated_at)
-VALUES(5, 1, 'Nice', '2022-10-10', '2022-11-12'),
-      (4, 2, 'Java > JS', '2022-10-10', '2022-11-23'),
-      (3, 2, 'I Love Java', '2022-8-10', '2022-12-22'),
-      (2, 3, 'Python is easy', '2022-5-10', '2022-12-17'),
-      (1, 5, 'C++ killer', '2022-1-10', '2022-11-13');
\ No newline at end of file
+INSERT INTO comments(id, user_id, post_id, content, created_at, updated_at)
+VALUES(1, 5, 1, 'Nice', '2022-10-10', '2022-11-12'),
+      (2, 4, 2, 'Java > JS', '2022-10-10', '2022-11-23'),
+      (3, 3, 2, 'I Love Java', '2022-8-10', '2022-12-22'),
+      (4, 2, 3, 'Python is easy', '2022-5-10', '2022-12-17'),
+      (5, 1, 5, 'C++ killer', '2022-1-10', '2022-11-13');
+
+
+--sequences (ids are allocated in blocks of 50, start past the rows above)
+ALTER SEQUENCE users_seq RESTART WITH 100;
+ALTER SEQUENCE posts_seq RESTART WITH 100;
+ALTER SEQUENCE comments_seq RESTART WITH 100;
@@ -0,0 +1,50 @@
+package com.leonardus.socialmedia;
+
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metrics_integration_test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserService userService;
+
+    @Test
+    @DisplayName("prometheus, after a request, exposes the request, service, Hibernate, pool and JVM metrics")
+    void prometheus_AfterARequest_ExposesTheMetrics() throws Exception {
+        UserDTO user = userService.create(new UserInsertDTO(null, "name", "metrics@gmail.com"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/social-media/users/" + user.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString(
+                        "http_server_requests_seconds_bucket{error=\"none\",exception=\"none\",method=\"GET\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("uri=\"/social-media/users/{userId}\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("quantile=\"0.99\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString(
+                        "user_service_seconds_count{class=\"com.leonardus.socialmedia.service.UserService\",exception=\"none\",method=\"findById\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_query_executions_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_entities_loads_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hibernate_collections_fetches_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hikaricp_connections_active")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("jvm_gc_memory_allocated_bytes_total")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("jvm_gc_pause_seconds")));
+    }
+}
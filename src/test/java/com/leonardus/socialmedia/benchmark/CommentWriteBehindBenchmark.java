@@ -0,0 +1,62 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.SocialMediaApplication;
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.dtos.CommentInsertDTO;
+import com.leonardus.socialmedia.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 16 threads commenting on the same post (a viral one), each comment in its own transaction (createComment) or
+ * queued for the write-behind flusher (acceptComment). The queue fills within the warmup, from then on callers wait
+ * for room, so the write-behind score is what the flusher sustains rather than how fast comments can be queued.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=CommentWriteBehindBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CommentWriteBehindBenchmark {
+
+    @Param({"false", "true"})
+    boolean writeBehind;
+
+    ConfigurableApplicationContext context;
+    UserService userService;
+    CommentInsertDTO commentInsertDTO;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = new SpringApplicationBuilder(SocialMediaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:comment_write_behind_benchmark",
+                        "--app.comments.write-behind.enabled=" + writeBehind,
+                        "--app.comments.write-behind.offer-timeout=PT1M",
+                        "--spring.datasource.hikari.maximum-pool-size=16",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=warn");
+        userService = context.getBean(UserService.class);
+        commentInsertDTO = CommentInsertDTO.builder().content("content").build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        // also writes whatever is still queued
+        context.close();
+    }
+
+    @Benchmark
+    public CommentDTO createComment(){
+        return writeBehind
+                ? userService.acceptComment(1L, 1L, commentInsertDTO)
+                : userService.createComment(1L, 1L, commentInsertDTO);
+    }
+}
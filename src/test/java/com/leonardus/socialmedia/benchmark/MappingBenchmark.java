@@ -0,0 +1,124 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.dtos.*;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.mappers.CommentMapper;
+import com.leonardus.socialmedia.mappers.PostMapper;
+import com.leonardus.socialmedia.mappers.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the reflective ModelMapper the service used to depend on with the hand-written mappers.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=MappingBenchmark
+ * The gc profiler reports gc.alloc.rate.norm, the bytes allocated per mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    ModelMapper modelMapper;
+    UserMapper userMapper;
+    PostMapper postMapper;
+    CommentMapper commentMapper;
+
+    User user;
+    Post post;
+    Comment comment;
+    UserInsertDTO userInsertDTO;
+    PostInsertDTO postInsertDTO;
+    CommentInsertDTO commentInsertDTO;
+
+    @Setup
+    public void setUp(){
+        modelMapper = new ModelMapper();
+        userMapper = new UserMapper();
+        postMapper = new PostMapper();
+        commentMapper = new CommentMapper();
+
+        LocalDateTime now = LocalDateTime.now();
+        user = User.builder().id(1L).name("name").email("email@gmail.com").createdAt(now).updatedAt(now).build();
+        post = Post.builder().id(1L).title("title").content("content").user(user).createdAt(now).updatedAt(now).build();
+        comment = Comment.builder().id(1L).content("content").user(user).createdAt(now).updatedAt(now).build();
+        userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
+        postInsertDTO = PostInsertDTO.builder().title("title").content("content").build();
+        commentInsertDTO = CommentInsertDTO.builder().content("content").build();
+
+        // ModelMapper builds its type maps lazily on the first call, keep that out of the measurements
+        modelMapper.map(user, UserDTO.class);
+        modelMapper.map(post, PostDTO.class);
+        modelMapper.map(comment, CommentDTO.class);
+        modelMapper.map(userInsertDTO, User.class);
+        modelMapper.map(postInsertDTO, Post.class);
+        modelMapper.map(commentInsertDTO, Comment.class);
+    }
+
+    @Benchmark
+    public UserDTO modelMapperUserToDTO(){
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userMapperToDTO(){
+        return userMapper.toDTO(user);
+    }
+
+    @Benchmark
+    public PostDTO modelMapperPostToDTO(){
+        return modelMapper.map(post, PostDTO.class);
+    }
+
+    @Benchmark
+    public PostDTO postMapperToDTO(){
+        return postMapper.toDTO(post);
+    }
+
+    @Benchmark
+    public CommentDTO modelMapperCommentToDTO(){
+        return modelMapper.map(comment, CommentDTO.class);
+    }
+
+    @Benchmark
+    public CommentDTO commentMapperToDTO(){
+        return commentMapper.toDTO(comment);
+    }
+
+    @Benchmark
+    public User modelMapperUserInsertDTOToEntity(){
+        return modelMapper.map(userInsertDTO, User.class);
+    }
+
+    @Benchmark
+    public User userMapperToEntity(){
+        return userMapper.toEntity(userInsertDTO);
+    }
+
+    @Benchmark
+    public Post modelMapperPostInsertDTOToEntity(){
+        return modelMapper.map(postInsertDTO, Post.class);
+    }
+
+    @Benchmark
+    public Post postMapperToEntity(){
+        return postMapper.toEntity(postInsertDTO);
+    }
+
+    @Benchmark
+    public Comment modelMapperCommentInsertDTOToEntity(){
+        return modelMapper.map(commentInsertDTO, Comment.class);
+    }
+
+    @Benchmark
+    public Comment commentMapperToEntity(){
+        return commentMapper.toEntity(commentInsertDTO);
+    }
+}
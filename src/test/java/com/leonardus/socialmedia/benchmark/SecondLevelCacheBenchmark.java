@@ -0,0 +1,105 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.SocialMediaApplication;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/*
+ * Read-heavy mix (80% findById, 15% user posts collection, 5% user update) with and without
+ * the l2cache profile. The statements/operations aux counters give the database round-trips per operation.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=SecondLevelCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+    static final int USERS = 1_000;
+    static final int POSTS_PER_USER = 5;
+
+    @Param({"default", "l2cache"})
+    String profile;
+
+    ConfigurableApplicationContext context;
+    UserRepository userRepository;
+    TransactionTemplate transactionTemplate;
+    Statistics statistics;
+    List<User> users;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+        public long operations;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = new SpringApplicationBuilder(SocialMediaApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profile)
+                .run("--spring.datasource.url=jdbc:h2:mem:second_level_cache_benchmark",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--logging.level.root=warn");
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        users = userRepository.saveAll(IntStream.range(0, USERS)
+                .mapToObj(i -> User.builder().name("user " + i).email("benchmark" + i + "@gmail.com").build())
+                .toList());
+        context.getBean(PostRepository.class).saveAll(users.stream()
+                .flatMap(user -> IntStream.range(0, POSTS_PER_USER)
+                        .mapToObj(i -> Post.builder().title("title " + i).content("content").user(user).build()))
+                .toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Object readHeavyMix(RoundTrips roundTrips){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        User user = users.get(random.nextInt(users.size()));
+        int operation = random.nextInt(100);
+        long before = statistics.getPrepareStatementCount();
+
+        Object result;
+        if (operation < 80){
+            result = userRepository.findById(user.getId());
+        } else if (operation < 95){
+            result = transactionTemplate.execute(status ->
+                    userRepository.findById(user.getId()).orElseThrow().getPosts().size());
+        } else {
+            result = transactionTemplate.execute(status -> {
+                User managed = userRepository.findById(user.getId()).orElseThrow();
+                managed.setName("user " + random.nextInt());
+                return managed;
+            });
+        }
+
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        roundTrips.operations++;
+        return result;
+    }
+}
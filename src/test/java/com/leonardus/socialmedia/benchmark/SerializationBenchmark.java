@@ -0,0 +1,76 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.leonardus.socialmedia.dtos.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+ * Jackson cost of the DTOs the controllers return and accept, with an ObjectMapper configured like Spring Boot's.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=SerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    ObjectWriter writer;
+    ObjectReader userInsertReader;
+
+    UserDTO userDTO;
+    PostDTO postDTO;
+    CommentDTO commentDTO;
+    CursorPageDTO<PostDTO> postPage;
+    String userInsertJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+        userInsertReader = objectMapper.readerFor(UserInsertDTO.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        userDTO = new UserDTO(1L, "name", "email@gmail.com", now, now, 0L);
+        postDTO = new PostDTO(1L, "title", "content", now, now);
+        commentDTO = new CommentDTO(1L, "content", now, now);
+        postPage = new CursorPageDTO<>(LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> new PostDTO(id, "title " + id, "content", now, now))
+                .toList(), 20L);
+        userInsertJson = objectMapper.writeValueAsString(UserInsertDTO.builder().name("name").email("email@gmail.com").build());
+    }
+
+    @Benchmark
+    public byte[] userDTO() throws JsonProcessingException {
+        return writer.writeValueAsBytes(userDTO);
+    }
+
+    @Benchmark
+    public byte[] postDTO() throws JsonProcessingException {
+        return writer.writeValueAsBytes(postDTO);
+    }
+
+    @Benchmark
+    public byte[] commentDTO() throws JsonProcessingException {
+        return writer.writeValueAsBytes(commentDTO);
+    }
+
+    @Benchmark
+    public byte[] postPage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(postPage);
+    }
+
+    @Benchmark
+    public UserInsertDTO readUserInsertDTO() throws JsonProcessingException {
+        return userInsertReader.readValue(userInsertJson);
+    }
+}
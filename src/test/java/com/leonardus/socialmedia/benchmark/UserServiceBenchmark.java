@@ -0,0 +1,101 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.SocialMediaApplication;
+import com.leonardus.socialmedia.dtos.*;
+import com.leonardus.socialmedia.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * UserService hot paths against an in-memory H2 seeded with users users, POSTS_PER_USER posts each. Reads pick a
+ * random user, so findById hits the users cache until there are more users than the cache holds (10000).
+ * createPost and createComment keep adding rows during the trial, which is small next to the seeded data.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=UserServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    static final int POSTS_PER_USER = 10;
+    static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "10000", "100000"})
+    int users;
+
+    ConfigurableApplicationContext context;
+    UserService userService;
+    long[] userIds;
+    long[] postIds;
+    PostInsertDTO postInsertDTO;
+    CommentInsertDTO commentInsertDTO;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = new SpringApplicationBuilder(SocialMediaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:user_service_benchmark",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=warn");
+        userService = context.getBean(UserService.class);
+
+        // seeded in SQL, going through JPA would make the 100000 users trial spend most of its time here
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("""
+                insert into users (id, name, email, created_at, updated_at)
+                select next value for users_seq, 'user ' || x, 'benchmark' || x || '@gmail.com', localtimestamp, localtimestamp
+                from system_range(1, ?)""", users);
+        jdbcTemplate.update("""
+                insert into posts (id, title, content, user_id, created_at, updated_at)
+                select next value for posts_seq, 'title ' || x, 'content', u.id, localtimestamp, localtimestamp
+                from users u, system_range(1, ?)""", POSTS_PER_USER);
+        userIds = jdbcTemplate.queryForList("select id from users", Long.class).stream().mapToLong(Long::longValue).toArray();
+        postIds = jdbcTemplate.queryForList("select id from posts", Long.class).stream().mapToLong(Long::longValue).toArray();
+
+        postInsertDTO = PostInsertDTO.builder().title("title").content("content").build();
+        commentInsertDTO = CommentInsertDTO.builder().content("content").build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public CursorPageDTO<UserDTO> findAll(){
+        return userService.findAll(this.randomUserId(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public UserDTO findById(){
+        return userService.findById(this.randomUserId());
+    }
+
+    @Benchmark
+    public CursorPageDTO<PostDTO> getPosts(){
+        return userService.getPosts(this.randomUserId(), null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PostDTO createPost(){
+        return userService.createPost(this.randomUserId(), postInsertDTO);
+    }
+
+    @Benchmark
+    public CommentDTO createComment(){
+        return userService.createComment(this.randomUserId(),
+                postIds[ThreadLocalRandom.current().nextInt(postIds.length)], commentInsertDTO);
+    }
+
+    private long randomUserId(){
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+}
@@ -0,0 +1,113 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.SocialMediaApplication;
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import com.leonardus.socialmedia.service.UserService;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/*
+ * 16 threads renaming hotUsers users, each update preceded by the read a client does before a PUT. The optimistic
+ * mode sends the version it read, like If-Match, and reads again and retries on a conflict; the pessimistic mode
+ * runs the same UserService.update inside a transaction that first locks the row with select ... for update, which
+ * is what update would need to stay safe without a version column. Both do the same statements apart from the lock
+ * and the retries, and the score counts successful updates only.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=UserUpdateContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class UserUpdateContentionBenchmark {
+
+    @Param({"1", "16"})
+    int hotUsers;
+
+    ConfigurableApplicationContext context;
+    UserService userService;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    List<Long> userIds;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        Long userId;
+        long updates;
+
+        @Setup(Level.Trial)
+        public void setUp(UserUpdateContentionBenchmark benchmark, ThreadParams thread){
+            userId = benchmark.userIds.get(thread.getThreadIndex() % benchmark.hotUsers);
+        }
+
+        String nextName(){
+            return "writer-" + Thread.currentThread().threadId() + "-" + updates++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = new SpringApplicationBuilder(SocialMediaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:user_update_contention_benchmark",
+                        "--spring.datasource.hikari.maximum-pool-size=16",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=off");
+        userService = context.getBean(UserService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userIds = userRepository.saveAll(IntStream.range(0, hotUsers)
+                        .mapToObj(i -> User.builder().name("contended").email("contended" + i + "@gmail.com").build())
+                        .toList())
+                .stream().map(User::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public UserDTO optimistic(Writer writer){
+        while (true){
+            UserDTO current = userService.findById(writer.userId);
+            UserInsertDTO next = new UserInsertDTO(null, writer.nextName(), current.getEmail());
+            try {
+                return userService.update(writer.userId, next, current.getVersion());
+            } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+                // someone else got there first, read the new version and try again
+            }
+        }
+    }
+
+    @Benchmark
+    public UserDTO pessimistic(Writer writer){
+        UserDTO current = userService.findById(writer.userId);
+        UserInsertDTO next = new UserInsertDTO(null, writer.nextName(), current.getEmail());
+        return transactionTemplate.execute(status -> {
+            entityManager.find(User.class, writer.userId, LockModeType.PESSIMISTIC_WRITE);
+            return userService.update(writer.userId, next, null);
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.leonardus.socialmedia.benchmark;
+
+import com.leonardus.socialmedia.SocialMediaApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 400 concurrent clients on GET /social-media/users, a single blocking query that holds its connection for 200 ms
+ * (the slow query), with Tomcat's pool capped at 50 threads, so the pool saturates at 0.25 requests/ms long before
+ * the CPU does. Compares that pool with virtual threads: Throughput gives requests/ms and SampleTime the p99
+ * latency.
+ * Run with: mvn -Pbenchmark test -Dbenchmark.include=VirtualThreadsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(400)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+    static final long QUERY_MILLIS = 200;
+
+    @Param({"false", "true"})
+    String virtualThreads;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    HttpRequest request;
+
+    public static class SlowDatabase {
+        @Bean
+        static BeanPostProcessor slowConnections(){
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName){
+                    if (!(bean instanceof DataSource dataSource)){
+                        return bean;
+                    }
+
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            Connection connection = super.getConnection();
+                            try {
+                                Thread.sleep(QUERY_MILLIS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return connection;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        // command-line arguments, unlike builder properties, take precedence over application.properties
+        context = new SpringApplicationBuilder(SocialMediaApplication.class, SlowDatabase.class)
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=50",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        // enough connections that the pool is not what limits either mode
+                        "--spring.datasource.hikari.maximum-pool-size=400",
+                        "--spring.datasource.url=jdbc:h2:mem:virtual_threads_benchmark",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=warn");
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/social-media/users?limit=5")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public int findAll() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
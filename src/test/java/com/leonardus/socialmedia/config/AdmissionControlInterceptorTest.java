@@ -0,0 +1,111 @@
+package com.leonardus.socialmedia.config;
+
+import com.leonardus.socialmedia.service.exceptions.ServiceUnavailableException;
+import com.leonardus.socialmedia.service.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlInterceptorTest {
+
+    MeterRegistry meterRegistry;
+    AdmissionControlInterceptor interceptor;
+    MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new AdmissionControlInterceptor(new TokenBuckets<>(1, 4, 100), new TokenBuckets<>(1, 2, 100), 2,
+                meterRegistry);
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    @DisplayName("preHandle, on a read, admits it without taking a token or a permit")
+    void preHandle_OnARead_AdmitsIt() {
+        for (int i = 0; i < 10; i++){
+            assertTrue(interceptor.preHandle(request("GET", "1", "10.0.0.1"), response, null));
+        }
+
+        assertEquals(0, this.decisions("allowed"));
+    }
+
+    @Test
+    @DisplayName("preHandle, once a user's bucket is empty, throws a TooManyRequestsException with the wait")
+    void preHandle_OnceAUsersBucketIsEmpty_ThrowsATooManyRequestsException() {
+        this.admit(request("POST", "1", "10.0.0.1"));
+        this.admit(request("POST", "1", "10.0.0.2"));
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("POST", "1", "10.0.0.3"), response, null));
+        assertEquals(1, e.getRetryAfterSeconds());
+        this.admit(request("POST", "2", "10.0.0.3"));
+        assertEquals(1, this.decisions("user_rate_limited"));
+    }
+
+    @Test
+    @DisplayName("preHandle, once a client's bucket is empty, throws a TooManyRequestsException whatever the user")
+    void preHandle_OnceAClientsBucketIsEmpty_ThrowsATooManyRequestsException() {
+        for (int i = 0; i < 4; i++){
+            this.admit(request("POST", String.valueOf(i), "10.0.0.1"));
+        }
+
+        assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("POST", "10", "10.0.0.1"), response, null));
+        assertEquals(1, this.decisions("client_rate_limited"));
+    }
+
+    @Test
+    @DisplayName("preHandle, past the writes allowed in flight, throws a ServiceUnavailableException until one completes")
+    void preHandle_PastTheWritesInFlight_ThrowsAServiceUnavailableException() {
+        MockHttpServletRequest first = request("POST", "1", "10.0.0.1");
+        assertTrue(interceptor.preHandle(first, response, null));
+        assertTrue(interceptor.preHandle(request("POST", "2", "10.0.0.2"), response, null));
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class,
+                () -> interceptor.preHandle(request("POST", "3", "10.0.0.3"), response, null));
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(2, meterRegistry.get("admission.in.flight").gauge().value());
+
+        interceptor.afterCompletion(first, response, null, null);
+        assertTrue(interceptor.preHandle(request("POST", "4", "10.0.0.4"), response, null));
+        assertEquals(1, this.decisions("shed"));
+        assertEquals(3, this.decisions("allowed"));
+    }
+
+    @Test
+    @DisplayName("preHandle, when the userId is not a number, only takes a token from the client's bucket")
+    void preHandle_WhenTheUserIdIsNotANumber_SkipsTheUserBucket() {
+        for (int i = 0; i < 4; i++){
+            this.admit(request("POST", "abc", "10.0.0." + i));
+        }
+
+        assertEquals(0, this.decisions("user_rate_limited"));
+        assertEquals(4, this.decisions("allowed"));
+    }
+
+    private void admit(MockHttpServletRequest request){
+        assertTrue(interceptor.preHandle(request, response, null));
+        interceptor.afterCompletion(request, response, null, null);
+    }
+
+    private double decisions(String decision){
+        return meterRegistry.get("admission.decisions").tag("decision", decision).counter().count();
+    }
+
+    private static MockHttpServletRequest request(String method, String userId, String address){
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/social-media/users/" + userId + "/posts");
+        request.setRemoteAddr(address);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("userId", userId));
+        return request;
+    }
+}
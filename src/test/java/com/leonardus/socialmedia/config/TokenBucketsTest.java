@@ -0,0 +1,89 @@
+package com.leonardus.socialmedia.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("tryAcquire, within the burst, takes a token")
+    void tryAcquire_WithinTheBurst_TakesAToken() {
+        TokenBuckets<String> buckets = new TokenBuckets<String>(1, 3, 100);
+
+        for (int i = 0; i < 3; i++){
+            assertEquals(0, buckets.tryAcquire("client", 0));
+        }
+    }
+
+    @Test
+    @DisplayName("tryAcquire, once the bucket is empty, returns the wait until the next token")
+    void tryAcquire_OnceTheBucketIsEmpty_ReturnsTheWait() {
+        TokenBuckets<String> buckets = new TokenBuckets<String>(2, 2, 100);
+        buckets.tryAcquire("client", 0);
+        buckets.tryAcquire("client", 0);
+
+        assertEquals(SECOND / 2, buckets.tryAcquire("client", 0));
+        assertEquals(SECOND / 4, buckets.tryAcquire("client", SECOND / 4));
+        assertEquals(0, buckets.tryAcquire("client", SECOND / 2));
+    }
+
+    @Test
+    @DisplayName("tryAcquire keeps a separate bucket per key")
+    void tryAcquire_KeepsABucketPerKey() {
+        TokenBuckets<String> buckets = new TokenBuckets<String>(1, 1, 100);
+        buckets.tryAcquire("first", 0);
+
+        assertTrue(buckets.tryAcquire("first", 0) > 0);
+        assertEquals(0, buckets.tryAcquire("second", 0));
+    }
+
+    @Test
+    @DisplayName("tryAcquire, when called concurrently on one key, hands out exactly the burst")
+    void tryAcquire_WhenCalledConcurrently_HandsOutExactlyTheBurst() throws Exception {
+        TokenBuckets<String> buckets = new TokenBuckets<String>(0.001, 100, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++){
+            results.add(executor.submit(() -> {
+                int taken = 0;
+                for (int j = 0; j < 1000; j++){
+                    if (buckets.tryAcquire("client", 0) == 0){
+                        taken++;
+                    }
+                }
+                return taken;
+            }));
+        }
+        int taken = 0;
+        for (Future<Integer> result : results){
+            taken += result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(100, taken);
+    }
+
+    @Test
+    @DisplayName("tryAcquire, when every request brings a new key, keeps at most maxKeys buckets")
+    void tryAcquire_WhenEveryRequestBringsANewKey_KeepsAtMostMaxKeysBuckets() {
+        TokenBuckets<String> buckets = new TokenBuckets<>(1, 1, 100);
+
+        for (int i = 0; i < 10_000; i++){
+            assertEquals(0, buckets.tryAcquire("client " + i, 0));
+        }
+
+        assertTrue(buckets.size() <= 100);
+    }
+}
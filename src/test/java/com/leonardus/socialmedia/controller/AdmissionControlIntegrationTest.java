@@ -0,0 +1,57 @@
+package com.leonardus.socialmedia.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admission_control_integration_test",
+        "app.admission.user.rate=0.1",
+        "app.admission.user.burst=2"
+})
+@AutoConfigureMockMvc
+class AdmissionControlIntegrationTest {
+
+    public static final String BASE_URL = "/social-media/users";
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserService userService;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("createPost, past the user's burst, returns 429 with Retry-After while reads still pass")
+    void createPost_PastTheUsersBurst_Returns429WithRetryAfter() throws Exception {
+        UserDTO user = userService.create(new UserInsertDTO(null, "name", "admission@gmail.com"));
+        String json = objectMapper.writeValueAsString(new PostInsertDTO("title", "content"));
+
+        for (int i = 0; i < 2; i++){
+            mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/posts")
+                            .contentType(MediaType.APPLICATION_JSON).content(json))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/posts")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(429))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Too many requests for this user"));
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/" + user.getId() + "/posts"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
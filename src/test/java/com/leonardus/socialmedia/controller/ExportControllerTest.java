@@ -0,0 +1,68 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.service.ExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(ExportController.class)
+class ExportControllerTest {
+
+    public static final String BASE_URL  = "/social-media/export";
+
+    @MockBean
+    ExportService service;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(service).exportUsers(any());
+    }
+
+    @Test
+    @DisplayName("exportUsers streams the users as NDJSON")
+    void exportUsers_StreamsTheUsersAsNdjson() throws Exception{
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/users"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    @DisplayName("exportPosts and exportComments return 200")
+    void exportPostsAndExportComments_ReturnOk() throws Exception{
+        for (String path : new String[]{"/posts", "/comments"}){
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + path)).andReturn();
+
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+        verify(service).exportPosts(any());
+        verify(service).exportComments(any());
+    }
+}
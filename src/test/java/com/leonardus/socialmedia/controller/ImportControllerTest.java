@@ -0,0 +1,66 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.service.ImportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@WebMvcTest(ImportController.class)
+class ImportControllerTest {
+
+    public static final String BASE_URL  = "/social-media/import";
+
+    @MockBean
+    ImportService service;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    @DisplayName("importUsers passes the body to the service and streams its results as NDJSON")
+    void importUsers_StreamsTheResultsAsNdjson() throws Exception{
+        String body = "{\"name\":\"name\",\"email\":\"name@gmail.com\"}\n";
+        doAnswer(invocation -> {
+            String read = new String(invocation.getArgument(0, InputStream.class).readAllBytes(), StandardCharsets.UTF_8);
+            String result = read.equals(body) ? "{\"line\":1,\"id\":1}\n" : "{\"line\":1,\"error\":\"unexpected\"}\n";
+            invocation.getArgument(1, OutputStream.class).write(result.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(service).importUsers(any(), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/users")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.content().string("{\"line\":1,\"id\":1}\n"));
+    }
+
+    @Test
+    @DisplayName("importUsers, when the body is not NDJSON, returns 415")
+    void importUsers_WhenTheBodyIsNotNdjson_ReturnsUnsupportedMediaType() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(MockMvcResultMatchers.status().isUnsupportedMediaType());
+    }
+}
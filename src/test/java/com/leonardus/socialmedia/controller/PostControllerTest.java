@@ -0,0 +1,81 @@
+package com.leonardus.socialmedia.controller;
+
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(PostController.class)
+class PostControllerTest {
+
+    public static final String BASE_URL  = "/social-media/posts";
+
+    @MockBean
+    PostService service;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    TimelinePostDTO timelinePostDTO;
+
+    @BeforeEach
+    void setUp() {
+        timelinePostDTO = TimelinePostDTO.builder().id(1L).title("title").content("content").authorId(1L).authorName("name").build();
+
+        when(service.findLatest(null, null, 20)).thenReturn(new CursorPageDTO<>(List.of(timelinePostDTO), null));
+        when(service.findLatest(2L, null, 1)).thenReturn(new CursorPageDTO<>(List.of(timelinePostDTO), 1L));
+        when(service.search("title", 20)).thenReturn(List.of(timelinePostDTO));
+    }
+
+    @Test
+    @DisplayName("findLatest returns 200 with the author of each post")
+    void findLatest_ReturnsTheLatestPosts() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/latest").accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].authorId").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].authorName").value("name"));
+    }
+
+    @Test
+    @DisplayName("findLatest, when cursor and limit are given, returns 200 with the next cursor")
+    void findLatest_WhenCursorAndLimitAreGiven_ReturnsTheNextCursor() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/latest").param("after", "2").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(1L));
+    }
+
+    @Test
+    @DisplayName("search returns 200 with the matching posts")
+    void search_ReturnsTheMatchingPosts() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/search").param("q", "title")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("title"));
+    }
+
+    @Test
+    @DisplayName("search, when q is missing, returns 400")
+    void search_WhenQueryIsMissing_ReturnsBadRequest() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/search").accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
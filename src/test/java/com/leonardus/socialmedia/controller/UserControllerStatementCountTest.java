@@ -0,0 +1,191 @@
+package com.leonardus.socialmedia.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leonardus.socialmedia.config.StatementCounter;
+import com.leonardus.socialmedia.dtos.CommentInsertDTO;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.leonardus.socialmedia.support.StatementCountAssertions.assertAtMost;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The most statements each UserController route may issue against a user with ROWS posts and comments, so a lazy
+ * collection touched per row shows up as a failure instead of a slow endpoint.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:user_controller_statement_count_test")
+@AutoConfigureMockMvc
+class UserControllerStatementCountTest {
+
+    public static final String BASE_URL  = "/social-media/users";
+    static final int ROWS = 10;
+    // ids come in blocks of 50, the insert that exhausts one also reads the next from the sequence
+    static final int SEQUENCE = 1;
+    // deleted users keep their email until they are purged, so emails cannot come from count()
+    static final AtomicInteger ACCOUNTS = new AtomicInteger();
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    StatementCounter counter;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    PostRepository postRepository;
+    @Autowired
+    CommentRepository commentRepository;
+
+    User user;
+    Post post;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder().name("name").email("statements" + ACCOUNTS.incrementAndGet() + "@gmail.com").build());
+        List<Post> posts = postRepository.saveAll(IntStream.range(0, ROWS)
+                .mapToObj(i -> Post.builder().title("title " + i).content("content").user(user).build())
+                .toList());
+        post = posts.get(0);
+        commentRepository.saveAll(posts.stream()
+                .map(post -> Comment.builder().content("content").user(user).post(post).build())
+                .toList());
+    }
+
+    @Test
+    @DisplayName("findAll issues one select")
+    void findAll_IssuesOneSelect() throws Throwable {
+        assertAtMost(counter, 1, 0, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "?limit=" + ROWS))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("findById issues one select")
+    void findById_IssuesOneSelect() throws Throwable {
+        assertAtMost(counter, 1, 0, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/" + user.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("create issues one insert and no email check")
+    void create_IssuesOneInsertAndNoEmailCheck() throws Throwable {
+        String json = objectMapper.writeValueAsString(new UserInsertDTO(null, "name", "statements-create@gmail.com"));
+
+        assertAtMost(counter, SEQUENCE, 1, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL)
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isCreated()));
+    }
+
+    @Test
+    @DisplayName("update issues one select and one update")
+    void update_IssuesOneSelectAndOneUpdate() throws Throwable {
+        String json = objectMapper.writeValueAsString(new UserInsertDTO(null, "renamed", user.getEmail()));
+
+        assertAtMost(counter, 1, 0, 1, 0, () -> mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/" + user.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("deleteById issues three updates and nothing else")
+    void deleteById_IssuesThreeUpdates() throws Throwable {
+        assertAtMost(counter, 0, 0, 3, 0, () -> mockMvc.perform(MockMvcRequestBuilders.delete(BASE_URL + "/" + user.getId()))
+                .andExpect(MockMvcResultMatchers.status().isNoContent()));
+    }
+
+    @Test
+    @DisplayName("getPosts issues two selects")
+    void getPosts_IssuesTwoSelects() throws Throwable {
+        assertAtMost(counter, 2, 0, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/" + user.getId() + "/posts?limit=" + ROWS))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("createPost issues one select and one insert")
+    void createPost_IssuesOneSelectAndOneInsert() throws Throwable {
+        String json = objectMapper.writeValueAsString(new PostInsertDTO("title", "content"));
+
+        assertAtMost(counter, 1 + SEQUENCE, 1, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/posts")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("createPosts issues one select and inserts every post in one batch")
+    void createPosts_InsertsEveryPostInOneBatch() throws Throwable {
+        List<PostInsertDTO> posts = IntStream.range(0, ROWS).mapToObj(i -> new PostInsertDTO("title", "content")).toList();
+        String json = objectMapper.writeValueAsString(posts);
+
+        assertAtMost(counter, 1 + SEQUENCE, 1, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/posts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("getComments issues two selects")
+    void getComments_IssuesTwoSelects() throws Throwable {
+        assertAtMost(counter, 2, 0, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/" + user.getId() + "/comments?limit=" + ROWS))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("createComment issues two selects and one insert")
+    void createComment_IssuesTwoSelectsAndOneInsert() throws Throwable {
+        String json = objectMapper.writeValueAsString(new CommentInsertDTO("content"));
+
+        assertAtMost(counter, 2 + SEQUENCE, 1, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/" + post.getId() + "/comment")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("createComments issues two selects and inserts every comment in one batch")
+    void createComments_InsertsEveryCommentInOneBatch() throws Throwable {
+        List<CommentInsertDTO> comments = IntStream.range(0, ROWS).mapToObj(i -> new CommentInsertDTO("content")).toList();
+        String json = objectMapper.writeValueAsString(comments);
+
+        assertAtMost(counter, 2 + SEQUENCE, 1, 0, 0, () -> mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/" + user.getId() + "/" + post.getId() + "/comment/bulk")
+                        .contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+    }
+
+    @Test
+    @DisplayName("every request records its statements as a metric")
+    void everyRequest_RecordsItsStatementsAsAMetric() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/" + user.getId() + "/posts"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        DistributionSummary selects = meterRegistry.get("http.server.requests.statements")
+                .tag("uri", "/social-media/users/{userId}/posts")
+                .tag("method", "GET")
+                .tag("kind", "select")
+                .summary();
+        assertTrue(selects.count() >= 1);
+        assertEquals(2, selects.max());
+    }
+}
@@ -8,18 +8,22 @@ import com.leonardus.socialmedia.factory.UserFactory;
 import com.leonardus.socialmedia.service.UserService;
 import com.leonardus.socialmedia.service.exceptions.DataIntegrityViolationException;
 import com.leonardus.socialmedia.service.exceptions.ObjectNotFoundException;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -56,19 +60,22 @@ class UserControllerTest {
         commentDTO = CommentFactory.createCommentDTO();
         json = objectMapper.writeValueAsString(userInsertDTO);
 
-        when(service.findAll()).thenReturn(List.of(userDTO));
+        when(service.findAll(null, 20)).thenReturn(new CursorPageDTO<>(List.of(userDTO), null));
+        when(service.findAll(1L, 1)).thenReturn(new CursorPageDTO<>(List.of(userDTO), 2L));
         when(service.findById(1L)).thenReturn(userDTO);
         when(service.findById(2L)).thenThrow(ObjectNotFoundException.class);
         when(service.create(userInsertDTO)).thenReturn(userDTO);
-        when(service.update(1L, userInsertDTO)).thenReturn(userDTO);
         doNothing().when(service).deleteById(1L);
         doThrow(ObjectNotFoundException.class).when(service).deleteById(2L);
-        when(service.getPosts(1L)).thenReturn(List.of(postDTO));
-        when(service.getPosts(2L)).thenThrow(ObjectNotFoundException.class);
+        when(service.getPosts(1L, null, null, 20)).thenReturn(new CursorPageDTO<>(List.of(postDTO), null));
+        when(service.getPosts(2L, null, null, 20)).thenThrow(ObjectNotFoundException.class);
         when(service.createPost(1L, postInsertDTO)).thenReturn(postDTO);
         when(service.createPost(2L, postInsertDTO)).thenThrow(ObjectNotFoundException.class);
-        when(service.getComments(1L)).thenReturn(List.of(commentDTO));
-        when(service.getComments(2L)).thenThrow(ObjectNotFoundException.class);
+        when(service.createPosts(1L, List.of(postInsertDTO))).thenReturn(new BulkInsertResultDTO<>(List.of(postDTO), List.of()));
+        when(service.createPosts(2L, List.of(postInsertDTO))).thenThrow(ObjectNotFoundException.class);
+        when(service.createComments(1L, 1L, List.of(commentInsertDTO))).thenReturn(new BulkInsertResultDTO<>(List.of(commentDTO), List.of()));
+        when(service.getComments(1L, null, null, 20)).thenReturn(new CursorPageDTO<>(List.of(commentDTO), null));
+        when(service.getComments(2L, null, null, 20)).thenThrow(ObjectNotFoundException.class);
         when(service.createComment(1L, 1L, commentInsertDTO)).thenReturn(commentDTO);
         when(service.createComment(2L, 1L, commentInsertDTO)).thenThrow(ObjectNotFoundException.class);
         when(service.createComment(1L, 2L, commentInsertDTO)).thenThrow(ObjectNotFoundException.class);
@@ -84,6 +91,17 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    @DisplayName("findAll, when cursor and limit are given, returns 200 with the next cursor")
+    void findAll_WhenCursorAndLimitAreGiven_ReturnsTheNextCursor() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL).param("after", "1").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(2L));
+    }
+
     @Test
     @DisplayName("findById, when user is found, returns 200")
     void findById_WhenSuccessful_ReturnsAUserDTO() throws Exception{
@@ -102,6 +120,33 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    @Test
+    @DisplayName("findById, when If-None-Match matches the ETag, returns 304 without a body")
+    void findById_WhenIfNoneMatchMatches_ReturnsNotModified() throws Exception{
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}", 1L))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}", 1L)
+                        .header("If-None-Match", etag))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    @DisplayName("findById, when the user was updated after the ETag, returns 200")
+    void findById_WhenUserWasUpdatedAfterTheETag_ReturnsOk() throws Exception{
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}", 1L))
+                .andReturn().getResponse().getHeader("ETag");
+        userDTO.setVersion(1L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}", 1L)
+                        .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
     @Test
     @DisplayName("create, when successful, returns 201")
     void create_WhenSuccessful_ReturnsAUserDTO() throws Exception{
@@ -173,6 +218,9 @@ class UserControllerTest {
     @Test
     @DisplayName("update, when successful, returns 200")
     void update_WhenSuccessful_ReturnsAnUpdatedUserDTO() throws Exception{
+        userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
+        when(service.update(1L, userInsertDTO, null)).thenReturn(userDTO);
+
         mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
                         .content(json)
                         .contentType(MediaType.APPLICATION_JSON))
@@ -180,6 +228,19 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    @DisplayName("create, when name is longer than the column, returns 400")
+    void create_WhenNameIsTooLong_ThrowsAMethodArgumentNotValidException() throws Exception{
+        json = objectMapper.writeValueAsString(UserInsertDTO.builder().name("n".repeat(256)).email("email@gmail.com").build());
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL)
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("The name field must have at most 255 characters"));
+    }
+
     @Test
     @DisplayName("update, when name is blank, returns 400")
     void update_WhenNameIsBlank_ThrowsAMethodArgumentNotValidException() throws Exception{
@@ -210,7 +271,7 @@ class UserControllerTest {
     @DisplayName("update, when email already exists, returns 400")
     void update_WhenEmailAlreadyExists_ThrowsADataIntegrityViolationException() throws Exception{
         userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
-        when(service.update(1L, userInsertDTO)).thenThrow(DataIntegrityViolationException.class);
+        when(service.update(1L, userInsertDTO, null)).thenThrow(DataIntegrityViolationException.class);
         json = objectMapper.writeValueAsString(userInsertDTO);
 
         mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
@@ -220,11 +281,68 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("update, when If-Match holds the current version, returns 200 with the new ETag")
+    void update_WhenIfMatchHoldsTheCurrentVersion_ReturnsTheNewETag() throws Exception{
+        userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
+        userDTO.setVersion(4L);
+        when(service.update(1L, userInsertDTO, 3L)).thenReturn(userDTO);
+        json = objectMapper.writeValueAsString(userInsertDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
+                        .header("If-Match", "\"3\"")
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    @DisplayName("update, when If-Match is stale, returns 412")
+    void update_WhenIfMatchIsStale_ReturnsPreconditionFailed() throws Exception{
+        userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
+        when(service.update(1L, userInsertDTO, 3L)).thenThrow(new PreconditionFailedException("stale"));
+        json = objectMapper.writeValueAsString(userInsertDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
+                        .header("If-Match", "\"3\"")
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("update, when If-Match is a weak ETag, returns 412")
+    void update_WhenIfMatchIsWeak_ReturnsPreconditionFailed() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
+                        .header("If-Match", "W/\"0\"")
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("update, when a concurrent request changed the user first, returns 409")
+    void update_WhenAConcurrentRequestWon_ReturnsConflict() throws Exception{
+        userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
+        when(service.update(1L, userInsertDTO, null)).thenThrow(new OptimisticLockingFailureException("lost"));
+        json = objectMapper.writeValueAsString(userInsertDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
     @Test
     @DisplayName("update, when user is not found, returns 404")
     void update_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() throws Exception{
         userInsertDTO = UserInsertDTO.builder().name("name").email("email@gmail.com").build();
-        when(service.update(1L, userInsertDTO)).thenThrow(ObjectNotFoundException.class);
+        when(service.update(1L, userInsertDTO, null)).thenThrow(ObjectNotFoundException.class);
         json = objectMapper.writeValueAsString(userInsertDTO);
 
         mockMvc.perform(MockMvcRequestBuilders.put(BASE_URL + "/{id}", 1L)
@@ -264,6 +382,24 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    @DisplayName("getPosts, when If-None-Match matches the page's ETag, returns 304 and otherwise 200")
+    void getPosts_WhenIfNoneMatchMatches_ReturnsNotModified() throws Exception {
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}/posts", 1L))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}/posts", 1L)
+                        .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        PostDTO newPost = PostFactory.createPostDTO();
+        newPost.setId(2L);
+        when(service.getPosts(1L, null, null, 20)).thenReturn(new CursorPageDTO<>(List.of(newPost, postDTO), null));
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}/posts", 1L)
+                        .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
     @Test
     @DisplayName("getPosts, when user is not found, returns 404")
     void getPosts_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() throws Exception {
@@ -323,6 +459,45 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("createPosts, when user is found, returns 200")
+    void createPosts_WhenUserIsFound_ReturnsABulkInsertResultDTO() throws Exception{
+        json = objectMapper.writeValueAsString(List.of(postInsertDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{id}/posts/bulk", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created[0].id").value(1L));
+    }
+
+    @Test
+    @DisplayName("createPosts, when the request has more items than allowed, returns 400")
+    void createPosts_WhenTheRequestHasTooManyItems_ReturnsBadRequest() throws Exception{
+        json = objectMapper.writeValueAsString(Collections.nCopies(BulkInsertResultDTO.MAX_ITEMS + 1, postInsertDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{id}/posts/bulk", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("A bulk request must have at most 1000 items"));
+        verify(service, never()).createPosts(anyLong(), anyList());
+    }
+
+    @Test
+    @DisplayName("createPosts, when user is not found, returns 404")
+    void createPosts_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() throws Exception{
+        json = objectMapper.writeValueAsString(List.of(postInsertDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{id}/posts/bulk", 2L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
     @Test
     @DisplayName("getComments, when user is found, returns 200")
     void getComments_WhenUserIsFound_ReturnsACommentDTO() throws Exception {
@@ -335,6 +510,22 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    @DisplayName("getComments, when the cursor carries its createdAt, passes it to the service")
+    void getComments_WhenTheCursorCarriesItsCreatedAt_PassesItToTheService() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 10, 15, 30, 123456000);
+        when(service.getComments(1L, 5L, createdAt, 20)).thenReturn(new CursorPageDTO<>(List.of(commentDTO), 1L, createdAt));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_URL + "/{id}/comments", 1L)
+                        .param("after", "5")
+                        .param("afterCreatedAt", objectMapper.convertValue(createdAt, String.class))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursorCreatedAt").value("2024-01-01T10:15:30.123456"));
+    }
+
     @Test
     @DisplayName("getComments, when user is not found, returns 404")
     void getComments_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() throws Exception {
@@ -356,6 +547,22 @@ class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    @DisplayName("createComment, in write-behind mode, returns 202")
+    void createComment_InWriteBehindMode_Returns202() throws Exception{
+        json = objectMapper.writeValueAsString(commentInsertDTO);
+        when(service.isCommentWriteBehind()).thenReturn(true);
+        when(service.acceptComment(1L, 1L, commentInsertDTO)).thenReturn(commentDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{userId}/{postId}/comment", 1L, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(commentDTO.getId()));
+        verify(service, never()).createComment(1L, 1L, commentInsertDTO);
+    }
+
     @Test
     @DisplayName("createPost, when user is not found, returns 404")
     void createComment_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() throws Exception{
@@ -392,4 +599,31 @@ class UserControllerTest {
                 .andDo(MockMvcResultHandlers.print())
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("createComments, when user and post are found, returns 200")
+    void createComments_WhenUserAndPostAreFound_ReturnsABulkInsertResultDTO() throws Exception{
+        json = objectMapper.writeValueAsString(List.of(commentInsertDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{userId}/{postId}/comment/bulk", 1L, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created[0].id").value(1L));
+    }
+
+    @Test
+    @DisplayName("createComments, when the request has more items than allowed, returns 400")
+    void createComments_WhenTheRequestHasTooManyItems_ReturnsBadRequest() throws Exception{
+        json = objectMapper.writeValueAsString(Collections.nCopies(BulkInsertResultDTO.MAX_ITEMS + 1, commentInsertDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(BASE_URL + "/{userId}/{postId}/comment/bulk", 1L, 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(MockMvcResultHandlers.print())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("A bulk request must have at most 1000 items"));
+        verify(service, never()).createComments(anyLong(), anyLong(), anyList());
+    }
 }
\ No newline at end of file
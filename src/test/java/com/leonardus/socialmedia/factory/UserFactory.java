@@ -14,6 +14,7 @@ public class UserFactory {
                 .id(1L)
                 .name("name")
                 .email("email@gmail.com")
+                .version(0L)
                 .posts(new ArrayList<>(List.of(PostFactory.createPost())))
                 .comments(new ArrayList<>(List.of(CommentFactory.createComment())))
                 .build();
@@ -24,6 +25,7 @@ public class UserFactory {
                 .id(1L)
                 .name("name")
                 .email("email@gmail.com")
+                .version(0L)
                 .build();
     }
 
@@ -0,0 +1,73 @@
+package com.leonardus.socialmedia.repositories;
+
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second_level_cache_test",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("l2cache")
+class SecondLevelCacheTest {
+
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    PostRepository postRepository;
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("findById, when the user was already loaded, is served from the second-level cache")
+    void findById_WhenTheUserWasAlreadyLoaded_IsServedFromTheCache() {
+        User user = userRepository.save(User.builder().name("name").email("l2-find@gmail.com").build());
+        userRepository.findById(user.getId());
+
+        statistics.clear();
+        User response = userRepository.findById(user.getId()).orElseThrow();
+
+        assertEquals("l2-find@gmail.com", response.getEmail());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("getComments, when a comment is added through its owning side, is not served stale from the cache")
+    void getComments_WhenACommentIsAdded_IsNotServedStale() {
+        User user = userRepository.save(User.builder().name("name").email("l2-collection@gmail.com").build());
+        Post post = postRepository.save(Post.builder().title("title").content("content").user(user).build());
+        assertEquals(0, this.countComments(post.getId()));
+
+        commentRepository.save(Comment.builder().content("content").user(user).post(post).build());
+
+        assertEquals(1, this.countComments(post.getId()));
+    }
+
+    private int countComments(Long postId){
+        return transactionTemplate.execute(status -> postRepository.findById(postId).orElseThrow().getComments().size());
+    }
+}
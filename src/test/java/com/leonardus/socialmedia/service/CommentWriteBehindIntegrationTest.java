@@ -0,0 +1,178 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.dtos.CommentInsertDTO;
+import com.leonardus.socialmedia.dtos.PostDTO;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.service.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:comment_write_behind_integration_test",
+        "app.comments.write-behind.enabled=true",
+        "app.comments.write-behind.batch-size=" + CommentWriteBehindIntegrationTest.BATCH_SIZE,
+        "app.comments.write-behind.offer-timeout=PT5S",
+        "app.comments.write-behind.retry.initial-backoff=PT0.01S"
+})
+class CommentWriteBehindIntegrationTest {
+
+    static final int BATCH_SIZE = 50;
+    static final int BURST = 400;
+
+    @Autowired
+    UserService service;
+    @Autowired
+    CommentWriteBehind writeBehind;
+    @SpyBean
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    UserDTO user;
+    PostDTO post;
+
+    @BeforeEach
+    void setUp() {
+        user = service.create(new UserInsertDTO(null, "name", "write-behind" + System.nanoTime() + "@gmail.com"));
+        post = service.createPost(user.getId(), new PostInsertDTO("title", "content"));
+    }
+
+    @Test
+    @DisplayName("acceptComment returns the id the comment is written with, never one a saved comment gets")
+    void acceptComment_ReturnsTheIdTheCommentIsWrittenWith() throws InterruptedException {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 60; i++){
+            ids.add(service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("queued " + i)).getId());
+            ids.add(service.createComment(user.getId(), post.getId(), new CommentInsertDTO("saved " + i)).getId());
+        }
+        CommentDTO accepted = service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("last"));
+        ids.add(accepted.getId());
+
+        this.awaitComments(121);
+
+        assertEquals(121, ids.size());
+        assertEquals("last", jdbcTemplate.queryForObject("select content from comments where id = ?", String.class, accepted.getId()));
+        assertEquals(accepted.getId(), service.getComments(user.getId(), null, null, 1).getContent().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("acceptComment, under a burst, writes several comments per transaction")
+    void acceptComment_UnderABurst_WritesSeveralCommentsPerTransaction() throws Exception {
+        DistributionSummary batches = meterRegistry.get("comments.write.behind.batch").summary();
+        long transactionsBefore = batches.count();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++){
+            results.add(executor.submit(() -> {
+                for (int j = 0; j < BURST / 8; j++){
+                    service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("burst"));
+                }
+            }));
+        }
+        for (Future<?> result : results){
+            result.get();
+        }
+        executor.shutdown();
+        this.awaitComments(BURST);
+
+        long transactions = batches.count() - transactionsBefore;
+        assertTrue(transactions >= BURST / BATCH_SIZE, "no batch may hold more than batch-size " + BATCH_SIZE + " comments");
+        assertTrue(transactions <= BURST / (BATCH_SIZE / 10),
+                "expected at least a tenth of batch-size " + BATCH_SIZE + " comments per transaction, got " + transactions
+                        + " transactions for " + BURST + " comments");
+    }
+
+    @Test
+    @DisplayName("acceptComment, when the database fails for a while, retries the batch instead of dropping it")
+    void acceptComment_WhenTheDatabaseFailsForAWhile_RetriesTheBatch() throws InterruptedException {
+        double dropped = meterRegistry.get("comments.write.behind.dropped").counter().count();
+        doThrow(new TransientDataAccessResourceException("pool timeout"))
+                .doThrow(new DataAccessResourceFailureException("connection lost"))
+                .doCallRealMethod()
+                .when(jdbcTemplate).batchUpdate(anyString(), ArgumentMatchers.<Collection<Object[]>>any(), anyInt(),
+                        ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object[]>>any());
+
+        for (int i = 0; i < 20; i++){
+            service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("during the outage"));
+        }
+
+        this.awaitComments(20);
+        assertEquals(dropped, meterRegistry.get("comments.write.behind.dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("acceptComment, when the database rejects one row of a batch, drops only that row")
+    void acceptComment_WhenTheDatabaseRejectsOneRow_DropsOnlyThatRow() throws InterruptedException {
+        double dropped = meterRegistry.get("comments.write.behind.dropped").counter().count();
+
+        service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("first"));
+        // a post purged between the check and the write
+        writeBehind.submit(user.getId(), Long.MAX_VALUE, "orphan");
+        service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("second"));
+
+        this.awaitComments(2);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (meterRegistry.get("comments.write.behind.dropped").counter().count() == dropped && System.nanoTime() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(dropped + 1, meterRegistry.get("comments.write.behind.dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("stop writes every comment still queued and refuses new ones until started again")
+    void stop_WritesEveryQueuedComment() {
+        for (int i = 0; i < 200; i++){
+            service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("queued"));
+        }
+
+        writeBehind.stop();
+        try {
+            assertEquals(200, this.comments());
+            assertThrows(ServiceUnavailableException.class,
+                    () -> service.acceptComment(user.getId(), post.getId(), new CommentInsertDTO("late")));
+        } finally {
+            writeBehind.start();
+        }
+    }
+
+    private long comments(){
+        return jdbcTemplate.queryForObject("select count(*) from comments where post_id = ?", Long.class, post.getId());
+    }
+
+    private void awaitComments(long expected) throws InterruptedException {
+        // polls until written, a loaded build machine can take well over a few seconds for the burst
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (this.comments() < expected && System.nanoTime() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(expected, this.comments());
+    }
+}
@@ -0,0 +1,131 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import com.leonardus.socialmedia.service.exceptions.DataIntegrityViolationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:compaction_job_integration_test",
+        "app.compaction.batch-size=2",
+        // the tests run the job themselves
+        "app.compaction.interval=PT1H"
+})
+class CompactionJobIntegrationTest {
+
+    @Autowired
+    CompactionJob job;
+    @Autowired
+    UserService userService;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    PostRepository postRepository;
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        while (job.compact() > 0){
+            // purges whatever the previous test left behind
+        }
+    }
+
+    @Test
+    @DisplayName("compact, when a user is deleted, purges the rows at most batch-size per table at a time")
+    void compact_WhenAUserIsDeleted_PurgesTheRowsInBatches() {
+        User deleted = userRepository.save(User.builder().name("name").email("compaction-batches@gmail.com").build());
+        User other = userRepository.save(User.builder().name("name").email("compaction-other@gmail.com").build());
+        Post otherPost = postRepository.save(Post.builder().title("title").content("content").user(other).build());
+        for (int i = 0; i < 3; i++){
+            Post post = postRepository.save(Post.builder().title("title").content("content").user(deleted).build());
+            commentRepository.save(Comment.builder().content("content").user(other).post(post).build());
+        }
+        Comment kept = commentRepository.save(Comment.builder().content("content").user(other).post(otherPost).build());
+
+        userService.deleteById(deleted.getId());
+        // written by a request that was still running when the deletion committed
+        commentRepository.save(Comment.builder().content("content").user(deleted).post(otherPost).build());
+
+        assertEquals(3, this.rows("comments", "deleted_at is not null"));
+        job.compact();
+        // the late comment is marked too, two comments go and with them the two posts left without comments
+        assertEquals(2, this.rows("comments", "deleted_at is not null"));
+        assertEquals(1, this.rows("posts", "user_id = " + deleted.getId()));
+        assertEquals(1, this.rows("users", "id = " + deleted.getId()));
+
+        assertEquals(0, job.compact());
+        assertEquals(0, this.rows("users", "id = " + deleted.getId()));
+        assertEquals(0, this.rows("posts", "user_id = " + deleted.getId()));
+        assertEquals(0, this.rows("comments", "deleted_at is not null"));
+        assertTrue(commentRepository.existsById(kept.getId()));
+        assertTrue(postRepository.existsById(otherPost.getId()));
+    }
+
+    @Test
+    @DisplayName("compact, once the deleted user is purged, frees the email for a new account")
+    void compact_OnceTheDeletedUserIsPurged_FreesTheEmail() {
+        UserInsertDTO insert = new UserInsertDTO(null, "name", "compaction-reserved@gmail.com");
+        UserDTO user = userService.create(insert);
+        userService.deleteById(user.getId());
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.create(insert));
+        job.compact();
+
+        assertNotEquals(user.getId(), userService.create(insert).getId());
+    }
+
+    @Test
+    @DisplayName("compact reports the backlog left and the rows purged per table")
+    void compact_ReportsTheBacklogAndThePurgedRows() {
+        User user = userRepository.save(User.builder().name("name").email("compaction-metrics@gmail.com").build());
+        for (int i = 0; i < 3; i++){
+            postRepository.save(Post.builder().title("title").content("content").user(user).build());
+        }
+        double purgedBefore = this.purged("posts");
+
+        userService.deleteById(user.getId());
+        job.compact();
+
+        assertEquals(1, this.backlog("posts"));
+        assertEquals(1, this.backlog("users"));
+        assertEquals(2, this.purged("posts") - purgedBefore);
+
+        job.compact();
+
+        assertEquals(0, this.backlog("posts"));
+        assertEquals(0, this.backlog("users"));
+        assertEquals(3, this.purged("posts") - purgedBefore);
+        assertTrue(meterRegistry.get("compaction.batch").timer().count() > 0);
+    }
+
+    private long rows(String table, String condition){
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + condition, Long.class);
+    }
+
+    private double backlog(String table){
+        return meterRegistry.get("compaction.backlog").tag("table", table).gauge().value();
+    }
+
+    private double purged(String table){
+        return meterRegistry.get("compaction.purged").tag("table", table).counter().count();
+    }
+}
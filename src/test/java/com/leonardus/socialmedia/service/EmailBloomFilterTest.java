@@ -0,0 +1,73 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class EmailBloomFilterTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    SimpleMeterRegistry meterRegistry;
+    EmailBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new EmailBloomFilter(userRepository, meterRegistry, 10_000, 0.01);
+
+        when(userRepository.streamAllEmails()).thenReturn(IntStream.range(0, 10_000).mapToObj(i -> "user" + i + "@gmail.com"));
+    }
+
+    @Test
+    @DisplayName("mightContain, before the filter is loaded, returns true")
+    void mightContain_BeforeLoad_ReturnsTrue() {
+        assertTrue(filter.mightContain("unknown@gmail.com"));
+    }
+
+    @Test
+    @DisplayName("mightContain, for every loaded or added email, returns true")
+    void mightContain_ForLoadedOrAddedEmails_ReturnsTrue() {
+        filter.load();
+        filter.put("new@gmail.com");
+
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("user" + i + "@gmail.com")));
+        assertTrue(filter.mightContain("new@gmail.com"));
+    }
+
+    @Test
+    @DisplayName("mightContain, for unknown emails, stays close to the configured false-positive rate")
+    void mightContain_ForUnknownEmails_StaysCloseToTheConfiguredFalsePositiveRate() {
+        filter.load();
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("other" + i + "@gmail.com")).count();
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.falsePositiveRate(), 0.005);
+        assertTrue(filter.memoryBytes() < 16 * 1024);
+        assertEquals(filter.falsePositiveRate(), meterRegistry.get("users.email.filter.false.positive.rate").gauge().value());
+        assertEquals(filter.memoryBytes(), meterRegistry.get("users.email.filter.memory").gauge().value());
+    }
+
+    @Test
+    @DisplayName("mightContain, when there are no users, returns false")
+    void mightContain_WhenThereAreNoUsers_ReturnsFalse() {
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        filter.load();
+
+        assertFalse(filter.mightContain("email@gmail.com"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.leonardus.socialmedia.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export_service_integration_test",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ExportServiceIntegrationTest {
+
+    @Autowired
+    ExportService service;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    PostRepository postRepository;
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("exportPosts writes one JSON object per line for every post without loading any entity")
+    void exportPosts_WritesOneLinePerPostWithoutLoadingEntities() throws Exception {
+        User user = userRepository.save(User.builder().name("name").email("export-posts@gmail.com").build());
+        postRepository.saveAll(IntStream.range(0, 2_000)
+                .mapToObj(i -> Post.builder().title("title " + i).content("content").user(user).build())
+                .toList());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        statistics.clear();
+        service.exportPosts(out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(postRepository.count(), lines.size());
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+        JsonNode last = objectMapper.readTree(lines.get(lines.size() - 1));
+        assertEquals("title 1999", last.get("title").asText());
+        assertEquals(user.getId(), last.get("userId").asLong());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    @DisplayName("exportUsers and exportComments write every row with its references")
+    void exportUsersAndExportComments_WriteEveryRow() throws Exception {
+        User user = userRepository.save(User.builder().name("name").email("export-comments@gmail.com").build());
+        Post post = postRepository.save(Post.builder().title("title").content("content").user(user).build());
+        commentRepository.save(Comment.builder().content("exported comment").user(user).post(post).build());
+        ByteArrayOutputStream users = new ByteArrayOutputStream();
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+
+        service.exportUsers(users);
+        service.exportComments(comments);
+
+        assertEquals(userRepository.count(), users.toString(StandardCharsets.UTF_8).lines().count());
+        JsonNode comment = objectMapper.readTree(comments.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.contains("exported comment")).findFirst().orElseThrow());
+        assertEquals(user.getId(), comment.get("userId").asLong());
+        assertEquals(post.getId(), comment.get("postId").asLong());
+    }
+}
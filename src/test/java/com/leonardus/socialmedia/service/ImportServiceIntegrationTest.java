@@ -0,0 +1,152 @@
+package com.leonardus.socialmedia.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import_service_integration_test",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.import.batch-size=3"
+})
+class ImportServiceIntegrationTest {
+
+    @Autowired
+    ImportService service;
+    @Autowired
+    UserService userService;
+    @SpyBean
+    UserRepository userRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("importUsers, when lines are invalid or repeat an email, reports each line in order and inserts the rest")
+    void importUsers_WhenLinesAreInvalidOrRepeatAnEmail_ReportsEachLineAndInsertsTheRest() throws Exception {
+        userService.create(new UserInsertDTO(null, "name", "import-existing@gmail.com"));
+        String body = """
+                {"name":"first","email":"import-first@gmail.com"}
+                {"name":"taken","email":"import-existing@gmail.com"}
+                not json
+
+                {"name":"x","email":"import-short@gmail.com"}
+                {"name":"again","email":"import-first@gmail.com"}
+                {"name":"second","email":"import-second@gmail.com"}
+                """;
+
+        List<JsonNode> results = this.importUsers(body);
+
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L), results.stream().map(result -> result.get("line").asLong()).toList());
+        assertTrue(results.get(0).has("id"));
+        assertFalse(results.get(0).has("error"));
+        assertEquals("Email is already registered", results.get(1).get("error").asText());
+        assertEquals("The line is not a valid JSON object", results.get(2).get("error").asText());
+        assertEquals("Tha name field must have at least 3 characters", results.get(3).get("error").asText());
+        assertEquals("Email is already registered", results.get(4).get("error").asText());
+        assertEquals("second", userRepository.findById(results.get(5).get("id").asLong()).orElseThrow().getName());
+        assertEquals(List.of("import-first@gmail.com"), userRepository.findEmailsIn(List.of("import-first@gmail.com")));
+    }
+
+    @Test
+    @DisplayName("importUsers checks the emails of each window with one query and inserts it in one transaction")
+    void importUsers_ChecksEachWindowWithOneQueryAndOneTransaction() throws Exception {
+        String body = IntStream.range(0, 9)
+                .mapToObj(i -> "{\"name\":\"name\",\"email\":\"import-window-" + i + "@gmail.com\"}")
+                .collect(Collectors.joining("\n"));
+
+        statistics.clear();
+        List<JsonNode> results = this.importUsers(body);
+
+        assertEquals(9, results.size());
+        assertTrue(results.stream().allMatch(result -> result.has("id")));
+        assertEquals(3, statistics.getTransactionCount());
+        assertTrue(statistics.getQueryExecutionCount() <= 3);
+        assertEquals(9, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    @DisplayName("importUsers, when the email check misses a registered email, retries the window line by line")
+    void importUsers_WhenTheEmailCheckMissesARegisteredEmail_RetriesLineByLine() throws Exception {
+        // saved behind the Bloom filter's back, as a concurrent insert would be
+        userRepository.save(User.builder().name("name").email("import-concurrent@gmail.com").build());
+        String body = """
+                {"name":"before","email":"import-before-concurrent@gmail.com"}
+                {"name":"concurrent","email":"import-concurrent@gmail.com"}
+                {"name":"after","email":"import-after-concurrent@gmail.com"}
+                """;
+
+        List<JsonNode> results = this.importUsers(body);
+
+        assertTrue(results.get(0).has("id"));
+        assertEquals("Email is already registered", results.get(1).get("error").asText());
+        assertTrue(results.get(2).has("id"));
+        assertEquals(List.of("import-after-concurrent@gmail.com"), userRepository.findEmailsIn(List.of("import-after-concurrent@gmail.com")));
+    }
+
+    @Test
+    @DisplayName("importUsers, when a line breaks a constraint other than the email one, reports it apart from a taken email")
+    void importUsers_WhenALineBreaksAnotherConstraint_ReportsItApartFromATakenEmail() throws Exception {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("violation",
+                new ConstraintViolationException("violation", new SQLException(), "ck_users_name"));
+        doThrow(violation).when(userRepository).saveAll(argThat((Iterable<User> users) -> StreamSupport.stream(users.spliterator(), false)
+                .anyMatch(user -> "import-broken@gmail.com".equals(user.getEmail()))));
+        String body = """
+                {"name":"before","email":"import-before-broken@gmail.com"}
+                {"name":"broken","email":"import-broken@gmail.com"}
+                {"name":"after","email":"import-after-broken@gmail.com"}
+                """;
+
+        List<JsonNode> results = this.importUsers(body);
+
+        assertTrue(results.get(0).has("id"));
+        assertEquals("The line could not be inserted", results.get(1).get("error").asText());
+        assertTrue(results.get(2).has("id"));
+    }
+
+    private List<JsonNode> importUsers(String body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).lines().toList()){
+            results.add(objectMapper.readTree(line));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,127 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class LatestPostsBufferTest {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2023, 1, 1, 12, 0);
+
+    @Mock
+    PostRepository postRepository;
+
+    LatestPostsBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LatestPostsBuffer(postRepository, 5);
+
+        when(postRepository.findLatest(PageRequest.ofSize(5))).thenReturn(List.of(post(3L, 1L), post(2L, 1L), post(1L, 2L)));
+    }
+
+    @Test
+    @DisplayName("latest, before the buffer is loaded, returns empty")
+    void latest_BeforeLoad_ReturnsEmpty() {
+        assertTrue(buffer.latest(null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("latest, when the buffer holds every post, returns them newest first with nothing older in the database")
+    void latest_WhenTheBufferHoldsEveryPost_ReturnsThemNewestFirst() {
+        buffer.load();
+
+        LatestPostsBuffer.Slice slice = buffer.latest(null, 10).orElseThrow();
+
+        assertEquals(List.of(3L, 2L, 1L), ids(slice));
+        assertFalse(slice.olderInDatabase());
+    }
+
+    @Test
+    @DisplayName("latest, when cursor is in the buffer, returns the posts after it")
+    void latest_WhenCursorIsInTheBuffer_ReturnsThePostsAfterIt() {
+        buffer.load();
+
+        assertEquals(List.of(2L), ids(buffer.latest(3L, 1).orElseThrow()));
+        assertEquals(List.of(), ids(buffer.latest(1L, 1).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("latest, when cursor is not in the buffer, returns empty")
+    void latest_WhenCursorIsNotInTheBuffer_ReturnsEmpty() {
+        buffer.load();
+
+        assertTrue(buffer.latest(42L, 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("add, when the buffer is full, evicts the oldest post and keeps the rest in order")
+    void add_WhenTheBufferIsFull_EvictsTheOldestPost() {
+        buffer.load();
+
+        LongStream.rangeClosed(4, 7).forEach(id -> buffer.add(post(id, 1L)));
+        LatestPostsBuffer.Slice slice = buffer.latest(null, 10).orElseThrow();
+
+        assertEquals(List.of(7L, 6L, 5L, 4L, 3L), ids(slice));
+        assertTrue(slice.olderInDatabase());
+    }
+
+    @Test
+    @DisplayName("add, when posts arrive out of order or twice, keeps them ordered by creation without duplicates")
+    void add_WhenPostsArriveOutOfOrderOrTwice_KeepsThemOrdered() {
+        buffer.load();
+
+        buffer.add(post(5L, 1L));
+        buffer.add(post(4L, 1L));
+        buffer.add(post(5L, 1L));
+        buffer.add(post(2L, 1L));
+
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), ids(buffer.latest(null, 10).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("add, when the post is older than a full buffer, leaves it to the database")
+    void add_WhenThePostIsOlderThanAFullBuffer_IgnoresIt() {
+        buffer.load();
+        LongStream.rangeClosed(10, 14).forEach(id -> buffer.add(post(id, 1L)));
+
+        buffer.add(post(4L, 1L));
+
+        assertEquals(List.of(14L, 13L, 12L, 11L, 10L), ids(buffer.latest(null, 10).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("renameAuthor and removeAuthor update the posts of that author only")
+    void renameAuthorAndRemoveAuthor_UpdateThePostsOfThatAuthorOnly() {
+        buffer.load();
+
+        buffer.renameAuthor(1L, "new name");
+        List<TimelinePostDTO> posts = buffer.latest(null, 10).orElseThrow().posts();
+        assertEquals(List.of("new name", "new name", "author 2"), posts.stream().map(TimelinePostDTO::getAuthorName).toList());
+
+        buffer.removeAuthor(1L);
+        assertEquals(List.of(1L), ids(buffer.latest(null, 10).orElseThrow()));
+    }
+
+    private static TimelinePostDTO post(Long id, Long authorId){
+        return new TimelinePostDTO(id, "title", "content", authorId, "author " + authorId, NOW.plusMinutes(id), NOW.plusMinutes(id));
+    }
+
+    private static List<Long> ids(LatestPostsBuffer.Slice slice){
+        return slice.posts().stream().map(TimelinePostDTO::getId).toList();
+    }
+}
@@ -0,0 +1,129 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class PostSearchIndexTest {
+
+    @Mock
+    PostRepository postRepository;
+
+    SimpleMeterRegistry meterRegistry;
+    PostSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new PostSearchIndex(postRepository, meterRegistry);
+
+        when(postRepository.streamAllTimelineDTOs()).thenReturn(Stream.of(
+                post(1L, 1L, "Spring Boot", "Building a REST API with Spring"),
+                post(2L, 1L, "Java records", "Records are immutable data carriers"),
+                post(3L, 2L, "Café com Java", "Uma introdução ao Java para iniciantes")));
+    }
+
+    @Test
+    @DisplayName("tokenize lowercases, strips accents and splits on anything that is not a letter or digit")
+    void tokenize_NormalizesTheText() {
+        assertEquals(List.of("cafe", "com", "java", "17", "e", "spring"), PostSearchIndex.tokenize("Café com JAVA-17, e Spring!"));
+    }
+
+    @Test
+    @DisplayName("search returns the matching posts best first, ranking title matches above content matches")
+    void search_ReturnsTheMatchingPostsBestFirst() {
+        index.load();
+
+        assertEquals(List.of(1L), index.search("spring", 10));
+        assertEquals(List.of(3L, 2L), index.search("java", 10));
+        assertEquals(List.of(3L), index.search("CAFE", 10));
+        assertEquals(List.of(), index.search("kotlin", 10));
+    }
+
+    @Test
+    @DisplayName("search, when more posts match than the limit, returns only the best ones")
+    void search_WhenMorePostsMatchThanTheLimit_ReturnsTheBestOnes() {
+        index.load();
+
+        assertEquals(List.of(3L), index.search("java", 1));
+    }
+
+    @Test
+    @DisplayName("add makes the post searchable, even when it arrives out of id order")
+    void add_MakesThePostSearchable() {
+        index.load();
+
+        index.add(post(10L, 1L, "Spring Data", "Repositories"));
+        index.add(post(5L, 1L, "Spring Security", "Filters"));
+
+        assertEquals(List.of(10L, 5L, 1L), index.search("spring", 10));
+        assertEquals(List.of(5L), index.search("security", 10));
+    }
+
+    @Test
+    @DisplayName("add, before the index is loaded, is left to the load")
+    void add_BeforeLoad_IsIgnored() {
+        index.add(post(10L, 1L, "Kotlin", "Coroutines"));
+        index.load();
+
+        assertEquals(List.of(), index.search("kotlin", 10));
+        assertEquals(3, index.documentCount());
+    }
+
+    @Test
+    @DisplayName("removeAuthor drops the posts of that author from the results and purges their postings")
+    void removeAuthor_DropsThePostsOfThatAuthor() {
+        index.load();
+
+        index.removeAuthor(1L);
+
+        assertEquals(List.of(3L), index.search("java", 10));
+        assertEquals(List.of(), index.search("spring", 10));
+        assertEquals(1, index.documentCount());
+        assertEquals(PostSearchIndex.tokenize("Café com Java Uma introdução ao Java para iniciantes").stream().distinct().count(),
+                index.termCount());
+    }
+
+    @Test
+    @DisplayName("posting lists, for many posts, take a few bytes per posting")
+    void postingLists_ForManyPosts_AreCompressed() {
+        PostSearchIndex.PostingList postingList = new PostSearchIndex.PostingList();
+        LongStream.rangeClosed(1, 10_000).forEach(id -> postingList.add(id * 3, 1));
+
+        List<Long> ids = new ArrayList<>();
+        postingList.forEach((id, frequency) -> ids.add(id));
+
+        assertEquals(LongStream.rangeClosed(1, 10_000).map(id -> id * 3).boxed().toList(), ids);
+        assertEquals(20_000, postingList.length);
+    }
+
+    @Test
+    @DisplayName("search publishes the query latency and index memory metrics")
+    void search_PublishesMetrics() {
+        index.load();
+        index.search("java", 10);
+
+        assertEquals(1, meterRegistry.get("posts.search.query").timer().count());
+        assertTrue(meterRegistry.get("posts.search.index.memory").gauge().value() > 0);
+        assertEquals(3, meterRegistry.get("posts.search.index.documents").gauge().value());
+    }
+
+    private static TimelinePostDTO post(Long id, Long authorId, String title, String content){
+        return TimelinePostDTO.builder().id(id).authorId(authorId).authorName("author").title(title).content(content).build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class PostServiceTest {
+
+    @InjectMocks
+    PostService service;
+    @Mock
+    PostRepository postRepository;
+    @Mock
+    LatestPostsBuffer latestPosts;
+    @Mock
+    PostSearchIndex searchIndex;
+
+    TimelinePostDTO newest;
+    TimelinePostDTO oldest;
+
+    @BeforeEach
+    void setUp() {
+        newest = TimelinePostDTO.builder().id(2L).title("title").content("content").authorId(1L).authorName("name")
+                .createdAt(LocalDateTime.of(2024, 1, 2, 0, 0)).build();
+        oldest = TimelinePostDTO.builder().id(1L).title("title").content("content").authorId(1L).authorName("name")
+                .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0)).build();
+    }
+
+    @Test
+    @DisplayName("findLatest, when the buffer holds the page, does not query the database")
+    void findLatest_WhenTheBufferHoldsThePage_DoesNotQueryTheDatabase() {
+        when(latestPosts.latest(null, 2)).thenReturn(Optional.of(new LatestPostsBuffer.Slice(List.of(newest, oldest), true)));
+
+        CursorPageDTO<TimelinePostDTO> response = service.findLatest(null, null, 1);
+
+        assertEquals(List.of(newest), response.getContent());
+        assertEquals(2L, response.getNextCursor());
+        assertEquals(newest.getCreatedAt(), response.getNextCursorCreatedAt());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("findLatest, when the page runs past the buffer, reads the rest after the buffer's oldest post")
+    void findLatest_WhenThePageRunsPastTheBuffer_ReadsTheRestFromTheDatabase() {
+        when(latestPosts.latest(null, 3)).thenReturn(Optional.of(new LatestPostsBuffer.Slice(List.of(newest), true)));
+        when(postRepository.findLatestAfter(newest.getCreatedAt(), 2L, PageRequest.ofSize(2))).thenReturn(List.of(oldest));
+
+        CursorPageDTO<TimelinePostDTO> response = service.findLatest(null, null, 2);
+
+        assertEquals(List.of(newest, oldest), response.getContent());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("findLatest, when the buffer holds every post, does not query the database for the last page")
+    void findLatest_WhenTheBufferHoldsEveryPost_DoesNotQueryTheDatabase() {
+        when(latestPosts.latest(null, 3)).thenReturn(Optional.of(new LatestPostsBuffer.Slice(List.of(newest), false)));
+
+        CursorPageDTO<TimelinePostDTO> response = service.findLatest(null, null, 2);
+
+        assertEquals(List.of(newest), response.getContent());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    @DisplayName("findLatest, when cursor is older than the buffer, reads the page from the database")
+    void findLatest_WhenCursorIsOlderThanTheBuffer_ReadsThePageFromTheDatabase() {
+        when(latestPosts.latest(any(), anyInt())).thenReturn(Optional.empty());
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 3, 0, 0);
+        when(postRepository.findLatestAfter(createdAt, 5L, PageRequest.ofSize(21))).thenReturn(List.of(oldest));
+
+        CursorPageDTO<TimelinePostDTO> response = service.findLatest(5L, createdAt, 20);
+
+        assertEquals(List.of(oldest), response.getContent());
+        assertNull(response.getNextCursor());
+        verify(postRepository, never()).findCreatedAtById(5L);
+    }
+
+    @Test
+    @DisplayName("findLatest, when the cursor is not in the buffer and comes without its createdAt, looks the createdAt up")
+    void findLatest_WhenTheCursorComesWithoutCreatedAt_LooksItUp() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 3, 0, 0);
+        when(latestPosts.latest(any(), anyInt())).thenReturn(Optional.empty());
+        when(postRepository.findCreatedAtById(5L)).thenReturn(Optional.of(createdAt));
+        when(postRepository.findLatestAfter(createdAt, 5L, PageRequest.ofSize(21))).thenReturn(List.of(oldest));
+
+        CursorPageDTO<TimelinePostDTO> response = service.findLatest(5L, null, 20);
+
+        assertEquals(List.of(oldest), response.getContent());
+    }
+
+    @Test
+    @DisplayName("search returns the posts in the order ranked by the index")
+    void search_ReturnsThePostsInRankOrder() {
+        when(searchIndex.search("title", 20)).thenReturn(List.of(1L, 2L));
+        when(postRepository.findTimelineDTOsByIdIn(List.of(1L, 2L))).thenReturn(List.of(newest, oldest));
+
+        List<TimelinePostDTO> response = service.search("title", 20);
+
+        assertEquals(List.of(oldest, newest), response);
+    }
+
+    @Test
+    @DisplayName("search, when nothing matches, does not query the database")
+    void search_WhenNothingMatches_DoesNotQueryTheDatabase() {
+        when(searchIndex.search("nothing", 20)).thenReturn(List.of());
+
+        assertEquals(List.of(), service.search("nothing", 20));
+        verifyNoInteractions(postRepository);
+    }
+}
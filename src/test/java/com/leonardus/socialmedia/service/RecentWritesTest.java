@@ -0,0 +1,32 @@
+package com.leonardus.socialmedia.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentWritesTest {
+
+    @Test
+    @DisplayName("isRecent, within the lag after a write, returns true")
+    void isRecent_WithinTheLag_ReturnsTrue() {
+        RecentWrites recentWrites = new RecentWrites(Duration.ofHours(1));
+        recentWrites.record(1L);
+
+        assertTrue(recentWrites.isRecent(1L));
+        assertFalse(recentWrites.isRecent(2L));
+    }
+
+    @Test
+    @DisplayName("isRecent, once the lag has passed, returns false")
+    void isRecent_OnceTheLagHasPassed_ReturnsFalse() throws InterruptedException {
+        RecentWrites recentWrites = new RecentWrites(Duration.ofMillis(10));
+        recentWrites.record(1L);
+
+        Thread.sleep(50);
+
+        assertFalse(recentWrites.isRecent(1L));
+    }
+}
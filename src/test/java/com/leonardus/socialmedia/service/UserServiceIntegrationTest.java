@@ -0,0 +1,426 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.BulkInsertResultDTO;
+import com.leonardus.socialmedia.dtos.CommentDTO;
+import com.leonardus.socialmedia.dtos.CommentInsertDTO;
+import com.leonardus.socialmedia.dtos.CursorPageDTO;
+import com.leonardus.socialmedia.dtos.PostDTO;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.TimelinePostDTO;
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import com.leonardus.socialmedia.entities.Comment;
+import com.leonardus.socialmedia.entities.Post;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.factory.CommentFactory;
+import com.leonardus.socialmedia.repositories.CommentRepository;
+import com.leonardus.socialmedia.repositories.PostRepository;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import com.leonardus.socialmedia.service.exceptions.DataIntegrityViolationException;
+import com.leonardus.socialmedia.service.exceptions.ObjectNotFoundException;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user_service_integration_test",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // the statistics are global, keep the compaction job from running in between
+        "app.compaction.interval=PT1H"
+})
+@AutoConfigureMockMvc
+class UserServiceIntegrationTest {
+
+    @Autowired
+    UserService service;
+    @Autowired
+    PostService postService;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    PostRepository postRepository;
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    CompactionJob compaction;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    MockMvc mockMvc;
+
+    Statistics statistics;
+    CommentInsertDTO commentInsertDTO;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        commentInsertDTO = CommentFactory.createCommenInsertDTO();
+    }
+
+    @Test
+    @DisplayName("createComment issues the same small number of statements no matter how many comments the post has")
+    void createComment_IssuesAFixedNumberOfStatements() {
+        User user = userRepository.save(User.builder().name("name").email("comment-statements@gmail.com").build());
+        Post post = postRepository.save(Post.builder().title("title").content("content").user(user).build());
+
+        this.assertCreateCommentStatements(user, post);
+
+        commentRepository.saveAll(IntStream.range(0, 500)
+                .mapToObj(i -> Comment.builder().content("comment " + i).user(user).post(post).build())
+                .toList());
+
+        this.assertCreateCommentStatements(user, post);
+    }
+
+    @Test
+    @DisplayName("createPosts writes the posts in JDBC batches instead of one statement per post")
+    void createPosts_WritesThePostsInBatches() {
+        User user = userRepository.save(User.builder().name("name").email("bulk-posts@gmail.com").build());
+        List<PostInsertDTO> postInsertDTOS = IntStream.range(0, 200)
+                .mapToObj(i -> PostInsertDTO.builder().title("title " + i).content("content").build())
+                .toList();
+
+        statistics.clear();
+        BulkInsertResultDTO<PostDTO> response = service.createPosts(user.getId(), postInsertDTOS);
+
+        assertEquals(200, response.getCreated().size());
+        assertEquals(200, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 20,
+                "expected batched inserts but " + statistics.getPrepareStatementCount() + " statements were prepared");
+    }
+
+    @Test
+    @DisplayName("findById, when the user is cached, does not query the database until the user is updated")
+    void findById_WhenTheUserIsCached_DoesNotQueryTheDatabaseUntilTheUserIsUpdated() {
+        User user = userRepository.save(User.builder().name("name").email("cached@gmail.com").build());
+
+        service.findById(user.getId());
+        statistics.clear();
+        service.findById(user.getId());
+        assertEquals(0, statistics.getQueryExecutionCount());
+
+        service.update(user.getId(), UserInsertDTO.builder().name("new name").email("cached@gmail.com").build(), null);
+        statistics.clear();
+        UserDTO response = service.findById(user.getId());
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals("new name", response.getName());
+    }
+
+    @Test
+    @DisplayName("findById, when the user is deleted, stops returning the cached user")
+    void findById_WhenTheUserIsDeleted_ThrowsAnObjectNotFoundException() {
+        User user = userRepository.save(User.builder().name("name").email("cached-deleted@gmail.com").build());
+        service.findById(user.getId());
+
+        service.deleteById(user.getId());
+
+        assertThrows(ObjectNotFoundException.class, () -> service.findById(user.getId()));
+    }
+
+    @Test
+    @DisplayName("deleteById issues the same statements whatever the size of the account")
+    void deleteById_IssuesTheSameStatementsWhateverTheSizeOfTheAccount() {
+        User small = this.createAccount("delete-small@gmail.com", 1);
+        User large = this.createAccount("delete-large@gmail.com", 200);
+
+        statistics.clear();
+        service.deleteById(small.getId());
+        long smallStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        service.deleteById(large.getId());
+
+        assertEquals(3, smallStatements);
+        assertEquals(smallStatements, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    @DisplayName("deleteById hides the user's comments elsewhere and other users' comments on the user's posts")
+    void deleteById_HidesEveryCommentTiedToTheUser() {
+        User deleted = userRepository.save(User.builder().name("name").email("delete-author@gmail.com").build());
+        User other = userRepository.save(User.builder().name("name").email("delete-other@gmail.com").build());
+        Post deletedPost = postRepository.save(Post.builder().title("title").content("content").user(deleted).build());
+        Post otherPost = postRepository.save(Post.builder().title("title").content("content").user(other).build());
+        Comment onDeletedPost = commentRepository.save(Comment.builder().content("content").user(other).post(deletedPost).build());
+        Comment byDeletedUser = commentRepository.save(Comment.builder().content("content").user(deleted).post(otherPost).build());
+        Comment kept = commentRepository.save(Comment.builder().content("content").user(other).post(otherPost).build());
+
+        service.deleteById(deleted.getId());
+
+        assertTrue(userRepository.findById(deleted.getId()).isEmpty());
+        assertFalse(userRepository.existsById(deleted.getId()));
+        assertTrue(postRepository.findById(deletedPost.getId()).isEmpty());
+        assertFalse(postRepository.existsById(deletedPost.getId()));
+        assertFalse(commentRepository.existsById(onDeletedPost.getId()));
+        assertFalse(commentRepository.existsById(byDeletedUser.getId()));
+        assertTrue(commentRepository.existsById(kept.getId()));
+        assertTrue(postRepository.existsById(otherPost.getId()));
+    }
+
+    @Test
+    @DisplayName("getComments, when the cursor's comment is deleted with its post's author between pages, goes on after it")
+    void getComments_WhenTheCursorCommentIsDeletedBetweenPages_GoesOnAfterIt() {
+        User reader = userRepository.save(User.builder().name("name").email("cursor-reader@gmail.com").build());
+        User author = userRepository.save(User.builder().name("name").email("cursor-author@gmail.com").build());
+        Post ownPost = postRepository.save(Post.builder().title("title").content("content").user(reader).build());
+        Post authorPost = postRepository.save(Post.builder().title("title").content("content").user(author).build());
+        CommentDTO oldest = service.createComment(reader.getId(), ownPost.getId(), commentInsertDTO);
+        service.createComment(reader.getId(), authorPost.getId(), commentInsertDTO);
+        service.createComment(reader.getId(), ownPost.getId(), commentInsertDTO);
+        CursorPageDTO<CommentDTO> firstPage = service.getComments(reader.getId(), null, null, 2);
+
+        service.deleteById(author.getId());
+
+        CursorPageDTO<CommentDTO> byId = service.getComments(reader.getId(), firstPage.getNextCursor(), null, 2);
+        assertEquals(List.of(oldest.getId()), byId.getContent().stream().map(CommentDTO::getId).toList());
+
+        compaction.compact();
+        CursorPageDTO<CommentDTO> afterPurge = service.getComments(reader.getId(), firstPage.getNextCursor(),
+                firstPage.getNextCursorCreatedAt(), 2);
+        assertEquals(List.of(oldest.getId()), afterPurge.getContent().stream().map(CommentDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("create, when the email belongs to a deleted user not purged yet, throws a DataIntegrityViolationException")
+    void create_WhenTheEmailBelongsToADeletedUser_ThrowsADataIntegrityViolationException() {
+        UserDTO user = service.create(new UserInsertDTO(null, "name", "delete-reserved@gmail.com"));
+        service.deleteById(user.getId());
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> service.create(new UserInsertDTO(null, "name", "delete-reserved@gmail.com")));
+    }
+
+    @Test
+    @DisplayName("create, when the name does not fit the column, does not report the email as taken")
+    void create_WhenTheNameDoesNotFitTheColumn_DoesNotReportTheEmailAsTaken() {
+        UserInsertDTO user = new UserInsertDTO(null, "n".repeat(300), "too-long@gmail.com");
+
+        assertThrows(org.springframework.dao.DataIntegrityViolationException.class, () -> service.create(user));
+    }
+
+    @Test
+    @DisplayName("create, when concurrent calls register the same email, lets exactly one of them in")
+    void create_WhenConcurrentCallsRegisterTheSameEmail_LetsExactlyOneIn() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<UserDTO>> responses = IntStream.range(0, 8)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return service.create(new UserInsertDTO(null, "racer " + i, "race@gmail.com"));
+                }))
+                .toList();
+        start.countDown();
+        int created = 0;
+        int rejected = 0;
+        for (Future<UserDTO> response : responses){
+            try {
+                response.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(7, rejected);
+        assertEquals(List.of("race@gmail.com"), userRepository.findEmailsIn(List.of("race@gmail.com")));
+    }
+
+    @Test
+    @DisplayName("deleteById, when user is not found, throws an ObjectNotFoundException")
+    void deleteById_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() {
+        assertThrows(ObjectNotFoundException.class, () -> service.deleteById(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("findById, when concurrent calls miss the cache, loads the user once")
+    void findById_WhenConcurrentCallsMissTheCache_LoadsTheUserOnce() throws Exception {
+        User user = userRepository.save(User.builder().name("name").email("cached-concurrent@gmail.com").build());
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+
+        statistics.clear();
+        List<Future<UserDTO>> responses = IntStream.range(0, 16)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return service.findById(user.getId());
+                }))
+                .toList();
+        start.countDown();
+        for (Future<UserDTO> response : responses){
+            assertEquals(user.getId(), response.get().getId());
+        }
+        executor.shutdown();
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    @DisplayName("update, when concurrent read-modify-write cycles retry on a version conflict, loses no update")
+    void update_WhenConcurrentUpdatesRetryOnConflict_LosesNoUpdate() throws Exception {
+        User user = userRepository.save(User.builder().name("count-0").email("contended@gmail.com").build());
+        int threads = 4;
+        int increments = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Integer>> conflicts = IntStream.range(0, threads)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    int retries = 0;
+                    for (int done = 0; done < increments; ){
+                        UserDTO current = service.findById(user.getId());
+                        int count = Integer.parseInt(current.getName().substring("count-".length()));
+                        UserInsertDTO next = new UserInsertDTO(null, "count-" + (count + 1), current.getEmail());
+                        try {
+                            service.update(user.getId(), next, current.getVersion());
+                            done++;
+                        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+                            retries++;
+                        }
+                    }
+                    return retries;
+                }))
+                .toList();
+        start.countDown();
+        int retries = 0;
+        for (Future<Integer> conflict : conflicts){
+            retries += conflict.get();
+        }
+        executor.shutdown();
+
+        User updated = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals("count-" + threads * increments, updated.getName());
+        assertEquals(threads * increments, updated.getVersion());
+        assertTrue(retries > 0, "the threads never collided, the test proves nothing");
+    }
+
+    @Test
+    @DisplayName("createComment, when post is not found, throws an ObjectNotFoundException and inserts nothing")
+    void createComment_WhenPostIsNotFound_ThrowsAnObjectNotFoundException() {
+        long comments = commentRepository.count();
+
+        assertThrows(ObjectNotFoundException.class, () -> service.createComment(1L, Long.MAX_VALUE, commentInsertDTO));
+        assertEquals(comments, commentRepository.count());
+    }
+
+    @Test
+    @DisplayName("findLatest, after posts are created, returns them first with their author without querying the database")
+    void findLatest_AfterPostsAreCreated_ReturnsThemFromTheBuffer() {
+        User user = userRepository.save(User.builder().name("author").email("timeline@gmail.com").build());
+        service.createPosts(user.getId(), List.of(PostInsertDTO.builder().title("first").content("content").build()));
+        PostDTO post = service.createPost(user.getId(), PostInsertDTO.builder().title("second").content("content").build());
+
+        statistics.clear();
+        CursorPageDTO<TimelinePostDTO> response = postService.findLatest(null, null, 2);
+
+        assertEquals(List.of("second", "first"), response.getContent().stream().map(TimelinePostDTO::getTitle).toList());
+        assertEquals(post.getId(), response.getContent().get(0).getId());
+        assertEquals("author", response.getContent().get(0).getAuthorName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("findLatest, after the author of the latest post is renamed, returns the post with the new name")
+    void findLatest_AfterTheAuthorIsRenamed_ReturnsTheNewName() throws Exception {
+        User user = userRepository.save(User.builder().name("old name").email("timeline-rename@gmail.com").build());
+        service.createPost(user.getId(), PostInsertDTO.builder().title("title").content("content").build());
+
+        service.update(user.getId(), new UserInsertDTO(null, "new name", "timeline-rename@gmail.com"), null);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/social-media/posts/latest").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].authorId").value(user.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].authorName").value("new name"));
+    }
+
+    @Test
+    @DisplayName("findLatest, when the author of the cursor's post is deleted between pages, goes on after that post")
+    void findLatest_WhenTheCursorPostsAuthorIsDeletedBetweenPages_GoesOnAfterIt() {
+        User reader = userRepository.save(User.builder().name("name").email("timeline-reader@gmail.com").build());
+        User author = userRepository.save(User.builder().name("name").email("timeline-author@gmail.com").build());
+        PostDTO oldest = service.createPost(reader.getId(), PostInsertDTO.builder().title("oldest").content("content").build());
+        service.createPost(author.getId(), PostInsertDTO.builder().title("deleted").content("content").build());
+        service.createPost(reader.getId(), PostInsertDTO.builder().title("newest").content("content").build());
+        CursorPageDTO<TimelinePostDTO> firstPage = postService.findLatest(null, null, 2);
+        assertEquals(List.of("newest", "deleted"), firstPage.getContent().stream().map(TimelinePostDTO::getTitle).toList());
+
+        service.deleteById(author.getId());
+
+        CursorPageDTO<TimelinePostDTO> byId = postService.findLatest(firstPage.getNextCursor(), null, 1);
+        assertEquals(List.of(oldest.getId()), byId.getContent().stream().map(TimelinePostDTO::getId).toList());
+
+        compaction.compact();
+        CursorPageDTO<TimelinePostDTO> afterPurge = postService.findLatest(firstPage.getNextCursor(),
+                firstPage.getNextCursorCreatedAt(), 1);
+        assertEquals(List.of(oldest.getId()), afterPurge.getContent().stream().map(TimelinePostDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("search, after posts are created or their author is deleted, reflects the change")
+    void search_AfterPostsAreCreatedOrDeleted_ReflectsTheChange() {
+        User user = userRepository.save(User.builder().name("author").email("search@gmail.com").build());
+        service.createPosts(user.getId(), List.of(PostInsertDTO.builder().title("Quarkus").content("native images").build()));
+        PostDTO post = service.createPost(user.getId(), PostInsertDTO.builder().title("Micronaut").content("and Quarkus").build());
+
+        List<TimelinePostDTO> response = postService.search("quarkus", 20);
+        assertEquals(2, response.size());
+        assertEquals("author", response.get(0).getAuthorName());
+        assertEquals(List.of(post.getId()), postService.search("micronaut", 20).stream().map(TimelinePostDTO::getId).toList());
+
+        service.deleteById(user.getId());
+        assertEquals(List.of(), postService.search("quarkus", 20));
+    }
+
+    private User createAccount(String email, int posts){
+        User user = userRepository.save(User.builder().name("name").email(email).build());
+        List<Post> saved = postRepository.saveAll(IntStream.range(0, posts)
+                .mapToObj(i -> Post.builder().title("title").content("content").user(user).build())
+                .toList());
+        commentRepository.saveAll(saved.stream()
+                .map(post -> Comment.builder().content("content").user(user).post(post).build())
+                .toList());
+        return user;
+    }
+
+    private void assertCreateCommentStatements(User user, Post post){
+        statistics.clear();
+        service.createComment(user.getId(), post.getId(), commentInsertDTO);
+
+        // two existence checks and the insert, plus at most one sequence call when a new id block is needed
+        assertEquals(2, statistics.getQueryExecutionCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "expected at most 4 statements but was " + statistics.getPrepareStatementCount());
+    }
+}
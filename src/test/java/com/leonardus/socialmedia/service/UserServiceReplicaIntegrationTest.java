@@ -0,0 +1,91 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.PostDTO;
+import com.leonardus.socialmedia.dtos.PostInsertDTO;
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.dtos.UserInsertDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two H2 databases stand in for the primary and its replica, replicate() copies the first into the second
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + UserServiceReplicaIntegrationTest.PRIMARY_URL,
+        "app.datasource.replica.url=" + UserServiceReplicaIntegrationTest.REPLICA_URL,
+        "app.datasource.replica.lag=PT1H",
+        "app.compaction.interval=PT1H"
+})
+class UserServiceReplicaIntegrationTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:user_service_replica_test_primary";
+    static final String REPLICA_URL = "jdbc:h2:mem:user_service_replica_test_replica";
+
+    @Autowired
+    UserService service;
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        this.replicate();
+    }
+
+    @Test
+    @DisplayName("create writes to the primary and findAll reads the replica")
+    void create_WritesToThePrimary_AndFindAllReadsTheReplica() {
+        UserDTO user = service.create(new UserInsertDTO(null, "name", "replica-create@gmail.com"));
+
+        assertEquals(1, this.users(primary, user.getId()));
+        assertEquals(0, this.users(replica, user.getId()));
+        assertFalse(this.findAllIds().contains(user.getId()));
+
+        this.replicate();
+
+        assertTrue(this.findAllIds().contains(user.getId()));
+    }
+
+    @Test
+    @DisplayName("findById and getPosts, right after the user is written, read the primary")
+    void findByIdAndGetPosts_RightAfterTheUserIsWritten_ReadThePrimary() {
+        UserDTO user = service.create(new UserInsertDTO(null, "name", "replica-written@gmail.com"));
+        this.replicate();
+
+        service.update(user.getId(), new UserInsertDTO(null, "new name", "replica-written@gmail.com"), null);
+        PostDTO post = service.createPost(user.getId(), new PostInsertDTO("title", "content"));
+
+        assertEquals("new name", service.findById(user.getId()).getName());
+        assertEquals(List.of(post.getId()), service.getPosts(user.getId(), null, null, 20).getContent().stream().map(PostDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("findById, when the user was not written recently, reads the replica")
+    void findById_WhenTheUserWasNotWrittenRecently_ReadsTheReplica() {
+        primary.update("update users set name = 'changed on the primary' where id = 5");
+
+        assertEquals("Felipe", service.findById(5L).getName());
+    }
+
+    private void replicate(){
+        List<String> script = primary.queryForList("script", String.class);
+        replica.execute("drop all objects");
+        script.forEach(replica::execute);
+    }
+
+    private long users(JdbcTemplate database, Long id){
+        return database.queryForObject("select count(*) from users where id = ?", Long.class, id);
+    }
+
+    private List<Long> findAllIds(){
+        return service.findAll(null, 100).getContent().stream().map(UserDTO::getId).toList();
+    }
+}
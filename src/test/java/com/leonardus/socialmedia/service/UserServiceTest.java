@@ -7,20 +7,31 @@ import com.leonardus.socialmedia.entities.User;
 import com.leonardus.socialmedia.factory.CommentFactory;
 import com.leonardus.socialmedia.factory.PostFactory;
 import com.leonardus.socialmedia.factory.UserFactory;
+import com.leonardus.socialmedia.mappers.CommentMapper;
+import com.leonardus.socialmedia.mappers.PostMapper;
+import com.leonardus.socialmedia.mappers.UserMapper;
 import com.leonardus.socialmedia.repositories.CommentRepository;
 import com.leonardus.socialmedia.repositories.PostRepository;
 import com.leonardus.socialmedia.repositories.UserRepository;
 import com.leonardus.socialmedia.service.exceptions.DataIntegrityViolationException;
 import com.leonardus.socialmedia.service.exceptions.ObjectNotFoundException;
+import com.leonardus.socialmedia.service.exceptions.PreconditionFailedException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.modelmapper.ModelMapper;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,8 +49,26 @@ class UserServiceTest {
     PostRepository postRepository;
     @Mock
     CommentRepository commentRepository;
+    @Spy
+    UserMapper userMapper;
+    @Spy
+    PostMapper postMapper;
+    @Spy
+    CommentMapper commentMapper;
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     @Mock
-    ModelMapper mapper;
+    EmailBloomFilter emailFilter;
+    @Mock
+    LatestPostsBuffer latestPosts;
+    @Mock
+    PostSearchIndex searchIndex;
+    @Mock
+    CompactionJob compaction;
+    @Mock
+    RecentWrites recentWrites;
+    @Mock
+    CommentWriteBehind commentWriteBehind;
 
     User user;
     UserDTO userDTO;
@@ -63,36 +92,54 @@ class UserServiceTest {
         commentDTO = CommentFactory.createCommentDTO();
         commentInsertDTO = CommentFactory.createCommenInsertDTO();
 
-        when(userRepository.findAll()).thenReturn(List.of(user));
+        when(userRepository.findDTOsAfter(0L, PageRequest.ofSize(21))).thenReturn(List.of(userDTO));
+        when(userRepository.findDTOById(1L)).thenReturn(Optional.of(userDTO));
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(userRepository.findByEmail("email@gmail.com")).thenReturn(Optional.of(user));
+        when(userRepository.existsById(1L)).thenReturn(true);
         when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
 
-        when(postRepository.save(post)).thenReturn(post);
+        when(postRepository.save(any(Post.class))).thenReturn(post);
         when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(postRepository.existsById(1L)).thenReturn(true);
+        when(postRepository.findDTOsByUserId(1L, PageRequest.ofSize(21))).thenReturn(List.of(postDTO));
 
-        when(commentRepository.save(comment)).thenReturn(comment);
-
-        doNothing().when(userRepository).delete(user);
+        when(commentRepository.save(any(Comment.class))).thenReturn(comment);
+        when(postRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(commentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(commentRepository.findDTOsByUserId(1L, PageRequest.ofSize(21))).thenReturn(List.of(commentDTO));
 
-        when(mapper.map(user, UserDTO.class)).thenReturn(userDTO);
-        when(mapper.map(userDTO, User.class)).thenReturn(user);
-        when(mapper.map(userInsertDTO, User.class)).thenReturn(user);
-        when(mapper.map(post, PostDTO.class)).thenReturn(postDTO);
-        when(mapper.map(postDTO, Post.class)).thenReturn(post);
-        when(mapper.map(postInsertDTO, Post.class)).thenReturn(post);
-        when(mapper.map(comment, CommentDTO.class)).thenReturn(commentDTO);
-        when(mapper.map(commentDTO, Comment.class)).thenReturn(comment);
-        when(mapper.map(commentInsertDTO, Comment.class)).thenReturn(comment);
+        when(userRepository.softDelete(eq(1L), any(LocalDateTime.class))).thenReturn(1);
     }
 
     @Test
-    @DisplayName("findAll returns a list of UserDTO")
-    void findAll_ReturnsAListOfUserDTO() {
-        List<UserDTO> response = service.findAll();
+    @DisplayName("findAll, when there is no next page, returns a page of UserDTO without cursor")
+    void findAll_WhenThereIsNoNextPage_ReturnsAPageOfUserDTOWithoutCursor() {
+        CursorPageDTO<UserDTO> response = service.findAll(null, 20);
 
         assertNotNull(response);
-        assertEquals(List.of(userDTO), response);
+        assertEquals(List.of(userDTO), response.getContent());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("findAll, when there is a next page, returns a page of UserDTO with the last id as cursor")
+    void findAll_WhenThereIsANextPage_ReturnsAPageOfUserDTOWithCursor() {
+        UserDTO nextUserDTO = UserDTO.builder().id(2L).build();
+        when(userRepository.findDTOsAfter(0L, PageRequest.ofSize(2))).thenReturn(List.of(userDTO, nextUserDTO));
+
+        CursorPageDTO<UserDTO> response = service.findAll(0L, 1);
+
+        assertEquals(List.of(userDTO), response.getContent());
+        assertEquals(1L, response.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("findAll, when limit is out of range, clamps the page size")
+    void findAll_WhenLimitIsOutOfRange_ClampsThePageSize() {
+        service.findAll(null, 1000);
+
+        verify(userRepository).findDTOsAfter(0L, PageRequest.ofSize(CursorPageDTO.MAX_PAGE_SIZE + 1));
     }
 
     @Test
@@ -113,7 +160,7 @@ class UserServiceTest {
     @Test
     @DisplayName("create, when email is unique, returns an UserDTO")
     void create_WhenEmailIsUnique_ReturnsAUserDTO() {
-        when(mapper.map(any(), any())).thenReturn(userDTO);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
 
         UserDTO response = service.create(userInsertDTO);
 
@@ -121,66 +168,131 @@ class UserServiceTest {
         assertEquals(userDTO, response);
     }
 
+    @Test
+    @DisplayName("create, when successful, adds the email to the filter without looking it up first")
+    void create_WhenSuccessful_AddsTheEmailToTheFilterWithoutLookingItUp() {
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(user);
+
+        service.create(userInsertDTO);
+
+        verify(userRepository).saveAndFlush(any(User.class));
+        verifyNoMoreInteractions(userRepository);
+        verify(emailFilter).put("email@gmail.com");
+    }
+
     @Test
     @DisplayName("create, when email is not unique, throws a DataIntegrityViolationException")
     void create_WhenEmailIsNotUnique_ThrowsADataIntegrityViolationException() {
-        when(userRepository.findByEmail("email@gmail.com")).thenReturn(Optional.of(User.builder().id(2L).build()));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(this.violationOf(User.EMAIL_CONSTRAINT));
 
         assertThrows(DataIntegrityViolationException.class, () -> service.create(userInsertDTO));
     }
 
+    @Test
+    @DisplayName("create, when another constraint fails, rethrows it instead of reporting the email as taken")
+    void create_WhenAnotherConstraintFails_RethrowsIt() {
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(this.violationOf("fk_posts_user"));
+
+        assertThrows(org.springframework.dao.DataIntegrityViolationException.class, () -> service.create(userInsertDTO));
+    }
+
     @Test
     @DisplayName("update, when user is found, returns an updated UserDTO")
     void update_WhenSuccessful_ReturnsAnUpdatedUserDTO() {
+        userInsertDTO.setName("new name");
+        userInsertDTO.setEmail("new@gmail.com");
         userDTO.setName("new name");
-        userDTO.setEmail("new email");
+        userDTO.setEmail("new@gmail.com");
 
-        UserDTO response = service.update(1L, userInsertDTO);
+        UserDTO response = service.update(1L, userInsertDTO, null);
 
         assertNotNull(response);
         assertEquals(userDTO, response);
+        verify(latestPosts).renameAuthor(1L, "new name");
     }
 
     @Test
     @DisplayName("update, when email is not unique, throws a DataIntegrityViolationException")
     void update_WhenEmailIsNotUnique_ThrowsADataIntegrityViolationException() {
-        when(userRepository.findByEmail("email@gmail.com")).thenReturn(Optional.of(User.builder().id(2L).build()));
+        when(userRepository.saveAndFlush(user)).thenThrow(this.violationOf(User.EMAIL_CONSTRAINT));
 
-        assertThrows(DataIntegrityViolationException.class, () -> service.update(1L, userInsertDTO));
+        assertThrows(DataIntegrityViolationException.class, () -> service.update(1L, userInsertDTO, null));
+    }
+
+    @Test
+    @DisplayName("update, when the expected version is not the current one, throws a PreconditionFailedException")
+    void update_WhenExpectedVersionIsStale_ThrowsAPreconditionFailedException() {
+        user.setVersion(3L);
+
+        assertThrows(PreconditionFailedException.class, () -> service.update(1L, userInsertDTO, 2L));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
     }
 
     @Test
     @DisplayName("update, when user is not found, throws an ObjectNotFoundException")
     void update_WhenUserIsNotFound_ThrowsAnObjectNotFoundException(){
-        assertThrows(ObjectNotFoundException.class, () -> service.update(2L, userInsertDTO));
+        assertThrows(ObjectNotFoundException.class, () -> service.update(2L, userInsertDTO, null));
     }
 
     @Test
     @DisplayName("deleteById, when users is found, does nothing")
     void deleteById_WhenSuccessful_DoesNothing() {
         service.deleteById(1L);
-        verify(userRepository, times(1)).delete(user);
+        verify(userRepository).softDelete(eq(1L), any(LocalDateTime.class));
+        verify(commentRepository).softDeleteAllByUserIdOrPostUserId(eq(1L), any(LocalDateTime.class));
+        verify(postRepository).softDeleteAllByUserId(eq(1L), any(LocalDateTime.class));
+        verify(userRepository, never()).findById(1L);
+        verify(latestPosts).removeAuthor(1L);
+        verify(searchIndex).removeAuthor(1L);
     }
 
     @Test
     @DisplayName("deleteById, when users is not found, throws an ObjectNotFoundException")
     void deleteById_WhenNotSuccessful_ThrowsAnObjectNotFoundException() {
         assertThrows(ObjectNotFoundException.class, () -> service.deleteById(2L));
+        verify(postRepository, never()).softDeleteAllByUserId(eq(2L), any(LocalDateTime.class));
+        verify(latestPosts, never()).removeAuthor(2L);
     }
 
     @Test
-    @DisplayName("getPosts, when user is found, returns a list of PostDTO")
-    void getPosts_WhenSuccessful_ReturnsAListOfPostDTO() {
-        List<PostDTO> response = service.getPosts(1L);
+    @DisplayName("getPosts, when user is found, returns a page of PostDTO")
+    void getPosts_WhenSuccessful_ReturnsAPageOfPostDTO() {
+        CursorPageDTO<PostDTO> response = service.getPosts(1L, null, null, 20);
 
         assertNotNull(response);
-        assertEquals(List.of(postDTO), response);
+        assertEquals(List.of(postDTO), response.getContent());
+        verify(userRepository, never()).findById(1L);
+    }
+
+    @Test
+    @DisplayName("getPosts, when cursor is given, returns the page after the cursor")
+    void getPosts_WhenCursorIsGiven_ReturnsThePageAfterTheCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(postRepository.findDTOsByUserIdAfter(1L, createdAt, 5L, PageRequest.ofSize(21))).thenReturn(List.of(postDTO));
+
+        CursorPageDTO<PostDTO> response = service.getPosts(1L, 5L, createdAt, 20);
+
+        assertEquals(List.of(postDTO), response.getContent());
+        assertNull(response.getNextCursor());
+        verify(postRepository, never()).findCreatedAtById(5L);
+    }
+
+    @Test
+    @DisplayName("getPosts, when cursor is given without its createdAt, looks the cursor's createdAt up")
+    void getPosts_WhenCursorIsGivenWithoutCreatedAt_LooksItUp() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(postRepository.findCreatedAtById(5L)).thenReturn(Optional.of(createdAt));
+        when(postRepository.findDTOsByUserIdAfter(1L, createdAt, 5L, PageRequest.ofSize(21))).thenReturn(List.of(postDTO));
+
+        CursorPageDTO<PostDTO> response = service.getPosts(1L, 5L, null, 20);
+
+        assertEquals(List.of(postDTO), response.getContent());
     }
 
     @Test
     @DisplayName("getPosts, when users is not found, throws an ObjectNotFoundException")
     void getPosts_WhenNotSuccessful_ThrowsAnObjectNotFoundException() {
-        assertThrows(ObjectNotFoundException.class, () -> service.getPosts(2L));
+        assertThrows(ObjectNotFoundException.class, () -> service.getPosts(2L, null, null, 20));
     }
 
     @Test
@@ -190,6 +302,10 @@ class UserServiceTest {
 
         assertNotNull(response);
         assertEquals(postDTO, response);
+        TimelinePostDTO timelinePostDTO = TimelinePostDTO.builder().id(1L).title("title").content("content")
+                .authorId(1L).authorName(user.getName()).build();
+        verify(latestPosts).add(timelinePostDTO);
+        verify(searchIndex).add(timelinePostDTO);
     }
 
     @Test
@@ -199,19 +315,37 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("getComments, when user is found, returns a list of CommentDTO")
-    void getComments_WhenSuccessful_ReturnsAListOfCommentDTO() {
-        List<CommentDTO> response = service.getComments(1L);
+    @DisplayName("createPosts, when some items are invalid, creates the valid ones and reports the others")
+    void createPosts_WhenSomeItemsAreInvalid_CreatesTheValidOnesAndReportsTheOthers() {
+        PostInsertDTO invalid = PostInsertDTO.builder().title("title").build();
 
+        BulkInsertResultDTO<PostDTO> response = service.createPosts(1L, List.of(postInsertDTO, invalid, postInsertDTO));
+
+        assertEquals(2, response.getCreated().size());
+        assertEquals(List.of(new BulkInsertErrorDTO(1, "The content field must not be blank")), response.getErrors());
+        verify(postRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("createPosts, when users is not found, throws an ObjectNotFoundException")
+    void createPosts_WhenNotSuccessful_ThrowsAnObjectNotFoundException() {
+        assertThrows(ObjectNotFoundException.class, () -> service.createPosts(2L, List.of(postInsertDTO)));
+    }
+
+    @Test
+    @DisplayName("getComments, when user is found, returns a page of CommentDTO")
+    void getComments_WhenSuccessful_ReturnsAPageOfCommentDTO() {
+        CursorPageDTO<CommentDTO> response = service.getComments(1L, null, null, 20);
 
         assertNotNull(response);
-        assertEquals(List.of(commentDTO), response);
+        assertEquals(List.of(commentDTO), response.getContent());
+        verify(userRepository, never()).findById(1L);
     }
 
     @Test
     @DisplayName("getComments, when users is not found, throws an ObjectNotFoundException")
     void getComments_WhenNotSuccessful_ThrowsAnObjectNotFoundException() {
-        assertThrows(ObjectNotFoundException.class, () -> service.getComments(2L));
+        assertThrows(ObjectNotFoundException.class, () -> service.getComments(2L, null, null, 20));
     }
 
     @Test
@@ -221,6 +355,9 @@ class UserServiceTest {
 
         assertNotNull(response);
         assertEquals(commentDTO, response);
+        verify(userRepository, never()).findById(1L);
+        verify(postRepository, never()).findById(1L);
+        verify(postRepository, never()).save(any());
     }
 
     @Test
@@ -234,4 +371,41 @@ class UserServiceTest {
     void createComment_WhenPostIsNotFound_ThrowsAnObjectNotFoundException() {
         assertThrows(ObjectNotFoundException.class, () -> service.createComment(1L, 2L, commentInsertDTO));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("acceptComment, when user and post are found, queues the comment without saving it")
+    void acceptComment_WhenSuccessful_QueuesTheComment() {
+        when(commentWriteBehind.submit(1L, 1L, commentInsertDTO.getContent())).thenReturn(commentDTO);
+
+        assertEquals(commentDTO, service.acceptComment(1L, 1L, commentInsertDTO));
+        verify(commentRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("acceptComment, when post is not found, throws an ObjectNotFoundException")
+    void acceptComment_WhenPostIsNotFound_ThrowsAnObjectNotFoundException() {
+        assertThrows(ObjectNotFoundException.class, () -> service.acceptComment(1L, 2L, commentInsertDTO));
+        verify(commentWriteBehind, never()).submit(anyLong(), anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("createComments, when some items are invalid, creates the valid ones and reports the others")
+    void createComments_WhenSomeItemsAreInvalid_CreatesTheValidOnesAndReportsTheOthers() {
+        BulkInsertResultDTO<CommentDTO> response = service.createComments(1L, 1L,
+                Arrays.asList(null, commentInsertDTO, CommentInsertDTO.builder().content(" ").build()));
+
+        assertEquals(1, response.getCreated().size());
+        assertEquals(List.of(0, 2), response.getErrors().stream().map(BulkInsertErrorDTO::getIndex).toList());
+    }
+
+    @Test
+    @DisplayName("createComments, when post is not found, throws an ObjectNotFoundException")
+    void createComments_WhenPostIsNotFound_ThrowsAnObjectNotFoundException() {
+        assertThrows(ObjectNotFoundException.class, () -> service.createComments(1L, 2L, List.of(commentInsertDTO)));
+    }
+
+    private org.springframework.dao.DataIntegrityViolationException violationOf(String constraint){
+        return new org.springframework.dao.DataIntegrityViolationException("violation",
+                new ConstraintViolationException("violation", new SQLException(), constraint));
+    }
+}
@@ -0,0 +1,80 @@
+package com.leonardus.socialmedia.service;
+
+import com.leonardus.socialmedia.dtos.UserDTO;
+import com.leonardus.socialmedia.entities.User;
+import com.leonardus.socialmedia.repositories.UserRepository;
+import com.leonardus.socialmedia.service.exceptions.ObjectNotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:user_service_virtual_threads_test",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.threads.virtual.enabled=true"
+})
+class UserServiceVirtualThreadsTest {
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+    @Autowired
+    UserService service;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("requests, when virtual threads are enabled, are handled on virtual threads")
+    void requests_WhenVirtualThreadsAreEnabled_AreHandledOnVirtualThreads() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+
+        assertInstanceOf(VirtualThreadExecutor.class, webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+    }
+
+    @Test
+    @DisplayName("findById, when concurrent virtual threads miss the cache, loads the user once")
+    void findById_WhenConcurrentVirtualThreadsMissTheCache_LoadsTheUserOnce() throws Exception {
+        User user = userRepository.save(User.builder().name("name").email("virtual@gmail.com").build());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        CountDownLatch start = new CountDownLatch(1);
+
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+        executor.setVirtualThreads(true);
+
+        statistics.clear();
+        List<Future<UserDTO>> responses = IntStream.range(0, 64)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return service.findById(user.getId());
+                }))
+                .toList();
+        start.countDown();
+        for (Future<UserDTO> response : responses){
+            assertEquals(user.getId(), response.get().getId());
+        }
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    @DisplayName("findById, when user is not found, still throws an ObjectNotFoundException")
+    void findById_WhenUserIsNotFound_ThrowsAnObjectNotFoundException() {
+        assertThrows(ObjectNotFoundException.class, () -> service.findById(Long.MAX_VALUE));
+    }
+}
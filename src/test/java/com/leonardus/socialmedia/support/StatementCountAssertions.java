@@ -0,0 +1,34 @@
+package com.leonardus.socialmedia.support;
+
+import com.leonardus.socialmedia.config.StatementCounter;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Caps on the SQL statements a block may issue, to catch N+1 queries. Only statements prepared on the calling thread
+ * are counted, which covers MockMvc requests and direct service calls.
+ */
+public final class StatementCountAssertions {
+
+    private StatementCountAssertions() {
+    }
+
+    public static StatementCounter.Counts count(StatementCounter counter, Executable action) throws Throwable {
+        StatementCounter.Counts before = counter.snapshot();
+        action.execute();
+        return counter.snapshot().minus(before);
+    }
+
+    public static StatementCounter.Counts assertAtMost(StatementCounter counter, int selects, int inserts, int updates,
+                                                       int deletes, Executable action) throws Throwable {
+        StatementCounter.Counts used = count(counter, action);
+        assertAll(
+                () -> assertTrue(used.selects() <= selects, () -> "expected at most " + selects + " selects but got " + used.selects()),
+                () -> assertTrue(used.inserts() <= inserts, () -> "expected at most " + inserts + " inserts but got " + used.inserts()),
+                () -> assertTrue(used.updates() <= updates, () -> "expected at most " + updates + " updates but got " + used.updates()),
+                () -> assertTrue(used.deletes() <= deletes, () -> "expected at most " + deletes + " deletes but got " + used.deletes()));
+        return used;
+    }
+}